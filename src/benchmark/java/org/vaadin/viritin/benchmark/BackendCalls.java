@@ -0,0 +1,32 @@
+package org.vaadin.viritin.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported by JMH next to time and allocation. The number of
+ * backend calls per operation is backendCalls / operations.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class BackendCalls {
+
+    public long backendCalls;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        backendCalls = 0;
+        operations = 0;
+    }
+
+    void record(SyntheticBackend backend) {
+        backendCalls += backend.getCalls();
+        backend.resetCalls();
+        operations++;
+    }
+
+}
@@ -0,0 +1,166 @@
+package org.vaadin.viritin.benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vaadin.viritin.LazyList;
+import org.vaadin.viritin.v7.SortableLazyList;
+
+/**
+ * Benchmarks the typical access patterns of LazyList and SortableLazyList,
+ * backed by {@link SyntheticBackend}:
+ * <ul>
+ * <li>sequential scrolling, row by row, like Grid or a stream over the
+ * list</li>
+ * <li>random jumps, like dragging the scrollbar</li>
+ * <li>Table style subList windows while scrolling</li>
+ * <li>ComboBox style indexOf and contains calls, both by iterating the list
+ * and with index and contains providers</li>
+ * </ul>
+ * Besides time, JMH reports the allocation rate (with -prof gc) and the
+ * number of backend calls, see {@link BackendCalls}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LazyListBenchmark {
+
+    private static final int TABLE_WINDOW = 45;
+    private static final int TABLE_SCROLL_STEP = 15;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"30", "100"})
+    public int pageSize;
+
+    @Param({"0", "200"})
+    public long latencyMicros;
+
+    /**
+     * The list implementation and the provider interface used to wire it to
+     * the backend.
+     */
+    @Param({"paging", "range", "sortable"})
+    public String variant;
+
+    private SyntheticBackend backend;
+    private List<Integer> list;
+    private List<Integer> listWithProviders;
+    private SplittableRandom random;
+    private int position;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        backend = new SyntheticBackend(size, latencyMicros);
+        list = createList();
+        listWithProviders = createList();
+        LazyList<Integer> lazyList = (LazyList<Integer>) listWithProviders;
+        boolean ascending = !"sortable".equals(variant);
+        lazyList.setIndexProvider(
+                (LazyList.IndexProvider<Integer>) entity -> backend.indexOf(entity, ascending));
+        lazyList.setContainsProvider(backend::contains);
+        random = new SplittableRandom(42);
+        position = 0;
+        backend.resetCalls();
+    }
+
+    private List<Integer> createList() {
+        switch (variant) {
+            case "paging":
+                return new LazyList<>(
+                        (LazyList.PagingProvider<Integer>) firstRow -> backend.
+                        findEntities(firstRow, pageSize),
+                        backend::size, pageSize);
+            case "range":
+                return new LazyList<>(
+                        (LazyList.RangePagingProvider<Integer>) backend::findEntities,
+                        backend::size, pageSize);
+            case "sortable":
+                SortableLazyList<Integer> sortable = new SortableLazyList<>(
+                        (SortableLazyList.SortableRangePagingProvider<Integer>) (firstRow, maxResults, sortAscending, properties) -> backend.
+                        findEntities(firstRow, maxResults, sortAscending.length == 0 || sortAscending[0]),
+                        backend::size, pageSize);
+                sortable.setSortProperty(new String[]{"value"});
+                sortable.setSortAscending(new boolean[]{false});
+                return sortable;
+            default:
+                throw new IllegalArgumentException("Unknown variant " + variant);
+        }
+    }
+
+    private int nextPosition(int step) {
+        int current = position;
+        position = (position + step) % (size - TABLE_WINDOW);
+        return current;
+    }
+
+    @Benchmark
+    public Integer sequentialScroll(BackendCalls calls) {
+        Integer row = list.get(nextPosition(1));
+        calls.record(backend);
+        return row;
+    }
+
+    @Benchmark
+    public Integer randomJump(BackendCalls calls) {
+        Integer row = list.get(random.nextInt(size));
+        calls.record(backend);
+        return row;
+    }
+
+    @Benchmark
+    public int tableWindow(BackendCalls calls) {
+        int first = nextPosition(TABLE_SCROLL_STEP);
+        int sum = 0;
+        for (Integer row : list.subList(first, first + TABLE_WINDOW)) {
+            sum += row;
+        }
+        calls.record(backend);
+        return sum;
+    }
+
+    @Benchmark
+    public int comboBoxIndexOf(BackendCalls calls) {
+        int index = list.indexOf(random.nextInt(size));
+        calls.record(backend);
+        return index;
+    }
+
+    @Benchmark
+    public boolean comboBoxContains(BackendCalls calls) {
+        boolean contains = list.contains(random.nextInt(size));
+        calls.record(backend);
+        return contains;
+    }
+
+    @Benchmark
+    public int comboBoxIndexOfWithProvider(BackendCalls calls) {
+        int index = listWithProviders.indexOf(random.nextInt(size));
+        calls.record(backend);
+        return index;
+    }
+
+    @Benchmark
+    public boolean comboBoxContainsWithProvider(BackendCalls calls) {
+        boolean contains = listWithProviders.contains(random.nextInt(size));
+        calls.record(backend);
+        return contains;
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.vaadin.viritin.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-memory backend for benchmarks. The entities are the integers from 0 to
+ * size - 1, optionally in descending order. Each call simulates a round trip to
+ * a database by parking the calling thread for the configured latency and is
+ * counted, so that benchmarks can report backend calls per operation.
+ */
+public class SyntheticBackend implements Serializable {
+
+    private static final long serialVersionUID = 4812090117413290163L;
+
+    private final int size;
+    private final long latencyNanos;
+
+    private long calls;
+
+    /**
+     * @param size the number of entities in the backend
+     * @param latencyMicros the simulated latency of each call in microseconds
+     */
+    public SyntheticBackend(int size, long latencyMicros) {
+        this.size = size;
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    public List<Integer> findEntities(int firstRow, int maxResults) {
+        return findEntities(firstRow, maxResults, true);
+    }
+
+    public List<Integer> findEntities(int firstRow, int maxResults,
+            boolean ascending) {
+        roundTrip();
+        int last = (int) Math.min(size, (long) firstRow + maxResults);
+        List<Integer> rows = new ArrayList<>(Math.max(0, last - firstRow));
+        for (int i = firstRow; i < last; i++) {
+            rows.add(ascending ? i : size - 1 - i);
+        }
+        return rows;
+    }
+
+    public int size() {
+        roundTrip();
+        return size;
+    }
+
+    public int indexOf(Integer entity) {
+        return indexOf(entity, true);
+    }
+
+    public int indexOf(Integer entity, boolean ascending) {
+        roundTrip();
+        if (entity == null || entity < 0 || entity >= size) {
+            return -1;
+        }
+        return ascending ? entity : size - 1 - entity;
+    }
+
+    public boolean contains(Integer entity) {
+        return indexOf(entity) >= 0;
+    }
+
+    /**
+     * @return the number of calls made to the backend since the last reset
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public void resetCalls() {
+        calls = 0;
+    }
+
+    private void roundTrip() {
+        calls++;
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.vaadin.viritin;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A LazyList that loads its pages without blocking the thread using the list.
+ * If a page is not loaded within the fetch deadline, placeholder rows are
+ * returned for it and {@link LazyList.PageLoadListener}s are notified once the
+ * page is available. MTable and MGrid listen to this and refresh their rows
+ * via UI.access, so a slow query only delays its own rows instead of freezing
+ * the whole UI. Use server push to get the rows updated without waiting for
+ * the next request from the browser.
+ * <p>
+ * Placeholders are only used if a
+ * {@link LazyList.PlaceholderProvider} is set, otherwise the list waits for
+ * the pages to be loaded.
+ *
+ * @param <T> The type of the objects in the list
+ * @see #setPlaceholderProvider(LazyList.PlaceholderProvider)
+ * @see #setFetchDeadline(long, java.util.concurrent.TimeUnit)
+ */
+public class AsyncLazyList<T> extends LazyList<T> {
+
+    private static final long serialVersionUID = -5372913862741540935L;
+
+    /**
+     * Interface via the AsyncLazyList communicates with the "backend"
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface AsyncPagingProvider<T> extends Serializable {
+
+        /**
+         * Starts fetching one "page" of entities from the backend. The amount
+         * "maxResults" should match with the value configured for the
+         * LazyList.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @return a future completed with a sub list from given first index
+         */
+        public CompletableFuture<List<T>> findEntities(int firstRow);
+    }
+
+    private final AsyncPagingProvider<T> asyncPagingProvider;
+
+    /**
+     * Constructs a new AsyncLazyList with given providers and default page
+     * size of DEFAULT_PAGE_SIZE (30).
+     *
+     * @param asyncPagingProvider the interface via "pages" of entities are
+     * requested
+     * @param countProvider the interface via the total count of entities is
+     * detected.
+     */
+    public AsyncLazyList(AsyncPagingProvider<T> asyncPagingProvider,
+            CountProvider countProvider) {
+        this(asyncPagingProvider, countProvider, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructs a new AsyncLazyList with given providers and page size.
+     *
+     * @param asyncPagingProvider the interface via "pages" of entities are
+     * requested
+     * @param countProvider the interface via the total count of entities is
+     * detected.
+     * @param pageSize the page size that should be used
+     */
+    public AsyncLazyList(AsyncPagingProvider<T> asyncPagingProvider,
+            CountProvider countProvider, int pageSize) {
+        super(countProvider, pageSize);
+        this.asyncPagingProvider = asyncPagingProvider;
+    }
+
+    @Override
+    protected List<T> findEntities(int i) {
+        try {
+            return asyncPagingProvider.findEntities(i).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    protected CompletableFuture<List<T>> findEntitiesAsync(int firstRow) {
+        return asyncPagingProvider.findEntities(firstRow);
+    }
+
+    @Override
+    protected boolean isAsyncLoadingSupported() {
+        return true;
+    }
+
+}
@@ -1,13 +1,39 @@
 package org.vaadin.viritin;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.vaadin.viritin.lazy.AdaptivePageSize;
+import org.vaadin.viritin.lazy.EntityChange;
+import org.vaadin.viritin.lazy.LazyListMetrics;
+import org.vaadin.viritin.lazy.SharedPageCache;
 
 /**
  * A general purpose helper class to us MTable/ListContainer for service layers
@@ -35,23 +61,59 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
     }
 
     private void loadPreviousPage() {
+        List<T> page = loadPage(pageIndex - 1);
         pageIndex--;
-        List<T> page = findEntities(pageIndex * pageSize);
         pages.add(0, page);
         if (pages.size() > maxPages) {
-            pages.remove(pages.size() - 1);
+            evictPage(pages.size() - 1);
         }
     }
 
     private void loadNextPage() {
-        List<T> page = findEntities((pageIndex + pages.size()) * pageSize);
+        List<T> page = loadPage(pageIndex + pages.size());
         pages.add(page);
         if (pages.size() > maxPages) {
-            pages.remove(0);
+            evictPage(0);
             pageIndex++;
         }
     }
 
+    private void appendPages(List<List<T>> loaded) {
+        for (List<T> page : loaded) {
+            pages.add(page);
+            if (pages.size() > maxPages) {
+                evictPage(0);
+                pageIndex++;
+            }
+        }
+    }
+
+    private void prependPages(List<List<T>> loaded) {
+        for (int i = loaded.size() - 1; i >= 0; i--) {
+            pageIndex--;
+            pages.add(0, loaded.get(i));
+            if (pages.size() > maxPages) {
+                evictPage(pages.size() - 1);
+            }
+        }
+    }
+
+    private void evictPage(int index) {
+        final int evicted = pageIndex + index;
+        final int first = pageIndex;
+        final int last = pageIndex + pages.size() - 1;
+        pages.remove(index);
+        if (pageStates != null) {
+            // forget pages that are no more in the window or the page store
+            pageStates.keySet().removeIf(p -> (p == evicted || p < first
+                    || p > last) && (pageStore == null || !pageStore.contains(
+                    p)));
+        }
+        if (metrics != null) {
+            metrics.pagesEvicted(1);
+        }
+    }
+
     // Split into subinterfaces for better Java 8 lambda support
     /**
      * Interface via the LazyList communicates with the "backend"
@@ -70,6 +132,90 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
         public List<T> findEntities(int firstRow);
     }
 
+    /**
+     * A paging provider that lets LazyList decide how many rows are fetched.
+     * With this provider LazyList can load a range spanning several uncached
+     * pages, e.g. a large subList requested by a Table or a Grid, with a
+     * single backend call.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface RangePagingProvider<T> extends Serializable {
+
+        /**
+         * Fetches the given range of entities from the backend.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param maxResults the maximum number of rows that should be fetched
+         * @return a sub list from given first index
+         */
+        public List<T> findEntities(int firstRow, int maxResults);
+    }
+
+    /**
+     * A paging provider that supports keyset (aka seek) pagination. When the
+     * page next to the requested one is already cached, LazyList passes its
+     * boundary entity to the backend, which can then use e.g.
+     * {@code WHERE key > ? ORDER BY key LIMIT n} instead of a heavy offset
+     * query. The offset based findEntities method is still used for random
+     * jumps.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface KeysetPagingProvider<T> extends PagingProvider<T> {
+
+        /**
+         * Fetches the page that follows the given entity.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param previous the last entity of the previous page
+         * @return the entities following previous, in list order
+         */
+        public List<T> findEntitiesAfter(int firstRow, T previous);
+
+        /**
+         * Fetches the page that precedes the given entity.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param next the first entity of the following page
+         * @return the entities preceding next, in list order
+         */
+        public List<T> findEntitiesBefore(int firstRow, T next);
+    }
+
+    /**
+     * Creates the rows shown in place of entities that are still being loaded
+     * asynchronously, see {@link AsyncLazyList}.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface PlaceholderProvider<T> extends Serializable {
+
+        /**
+         * @param index the index of the row in the list
+         * @return the placeholder for the row, e.g. an entity with "Loading..."
+         * in its display properties
+         */
+        public T createPlaceholder(int index);
+    }
+
+    /**
+     * Listener notified when a page that was returned as placeholders has been
+     * loaded asynchronously, see {@link AsyncLazyList}.
+     * <p>
+     * Note, that the listener is called from the thread that completes the
+     * future, typically without holding the lock of the Vaadin session, so
+     * UI changes must be done via UI.access.
+     */
+    public interface PageLoadListener extends Serializable {
+
+        /**
+         * @param firstRow the index of the first row on the loaded page
+         * @param rowCount the number of rows on the page
+         */
+        public void pageLoaded(int firstRow, int rowCount);
+    }
+
     /**
      * LazyList detects the size of the "simulated" list with via this
      * interface. Backend call is cached as COUNT queries in databases are
@@ -83,6 +229,39 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
         public int size();
     }
 
+    /**
+     * A count provider that can return a cheap estimate of the count, e.g.
+     * from the statistics of the query planner. If a count executor is set,
+     * LazyList uses the estimate until the exact count has been computed in
+     * the background, so that neither the scrollbar nor the first page need
+     * to wait for a heavy COUNT query.
+     *
+     * @see LazyList#setCountExecutor(Executor)
+     */
+    public interface EstimatingCountProvider extends CountProvider {
+
+        /**
+         * @return an estimate of the count of entities listed in the LazyList
+         */
+        public int estimateSize();
+    }
+
+    /**
+     * Listener notified when the size of the list changes after it has been
+     * reported, e.g. when the exact count replaces an estimate.
+     * <p>
+     * Note, that the listener may be called from a background thread, without
+     * holding the lock of the Vaadin session, so UI changes must be done via
+     * UI.access.
+     */
+    public interface SizeChangeListener extends Serializable {
+
+        /**
+         * @param size the new size of the list
+         */
+        public void sizeChanged(int size);
+    }
+
     /**
      * Interface via the LazyList communicates with the "backend"
      *
@@ -91,7 +270,161 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
     public interface EntityProvider<T> extends PagingProvider<T>, CountProvider {
     }
 
+    /**
+     * An optional interface via LazyList can ask the backend for the position
+     * of an entity, instead of iterating through the whole list. Used e.g.
+     * when a value is selected in a component backed by a LazyList.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface IndexProvider<T> extends Serializable {
+
+        /**
+         * @param entity the entity whose index is requested
+         * @return the index of the entity in the list, -1 if it is not in the
+         * list
+         */
+        public int indexOf(T entity);
+    }
+
+    /**
+     * An optional interface via LazyList can ask the backend whether an entity
+     * is in the list, instead of iterating through the whole list.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface ContainsProvider<T> extends Serializable {
+
+        /**
+         * @param entity the entity to look for
+         * @return true if the entity is in the list
+         */
+        public boolean contains(T entity);
+    }
+
+    /**
+     * An optional interface for cheap revalidation of expired pages, see
+     * {@link LazyList#setPageTimeToLive(long, TimeUnit)}. When a page
+     * expires, LazyList asks for the current version of its rows and only
+     * fetches the rows again if the version has changed.
+     */
+    public interface PageVersionProvider extends Serializable {
+
+        /**
+         * Returns the version of the given rows, e.g. the latest modification
+         * timestamp among them or an ETag of the page. The version must change
+         * whenever the rows on the page change.
+         *
+         * @param firstRow the index of the first row on the page
+         * @param maxResults the size of the page
+         * @return the version of the rows, null if unknown
+         */
+        public Object getVersion(int firstRow, int maxResults);
+    }
+
+    /**
+     * Paging providers that return the same data for all users can implement
+     * this interface to make their pages cacheable in a
+     * {@link SharedPageCache}.
+     */
+    public interface QueryKeyProvider extends Serializable {
+
+        /**
+         * Returns a key that identifies the query made by the provider. Two
+         * providers returning equal keys must return the same entities for
+         * the same rows. The key must properly implement equals and hashCode.
+         *
+         * @return the key identifying the query, null if the results should
+         * not be shared
+         */
+        public Object getQueryKey();
+    }
+
+    /**
+     * A second level cache for pages loaded by the LazyList. Unlike the window
+     * of pages that the LazyList itself keeps in memory, pages in the store
+     * don't need to be adjacent, so e.g. jumping between the beginning and
+     * the end of a large list don't cause the same pages to be loaded again
+     * and again.
+     *
+     * @param <T> The type of the objects in the list
+     * @see org.vaadin.viritin.lazy.LruPageStore
+     */
+    public interface PageStore<T> extends Serializable {
+
+        /**
+         * @param pageIndex the index of the page
+         * @return the cached page or null if the page is not in the store
+         */
+        public List<T> get(int pageIndex);
+
+        /**
+         * Stores the page with given index.
+         *
+         * @param pageIndex the index of the page
+         * @param page the entities on the page
+         */
+        public void put(int pageIndex, List<T> page);
+
+        /**
+         * Removes the page with given index from the store.
+         *
+         * @param pageIndex the index of the page
+         */
+        public void remove(int pageIndex);
+
+        /**
+         * Removes all pages from the store.
+         */
+        public void clear();
+
+        /**
+         * Checks whether the page is in the store. Unlike {@link #get(int)},
+         * this is not counted as an access to the page. The default
+         * implementation calls get.
+         *
+         * @param pageIndex the index of the page
+         * @return true if the page is in the store
+         */
+        public default boolean contains(int pageIndex) {
+            return get(pageIndex) != null;
+        }
+    }
+
+    /**
+     * Receives changes of entities published by a {@link ChangeFeed}.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface EntityChangeListener<T> extends Serializable {
+
+        /**
+         * Called when an entity has been changed in the backend. Note, that
+         * the method may be called from any thread.
+         *
+         * @param change the change
+         */
+        public void entityChanged(EntityChange<T> change);
+    }
+
+    /**
+     * A source of entity changes, typically an adapter to the events
+     * published by the service layer. Components listing a LazyList, e.g.
+     * MGrid and MTable, subscribe to the feed while attached and apply the
+     * changes to their list with {@link LazyList#applyChange(EntityChange)},
+     * so that the listing follows live data without resetting the list.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface ChangeFeed<T> extends Serializable {
+
+        public void addEntityChangeListener(EntityChangeListener<T> listener);
+
+        public void removeEntityChangeListener(EntityChangeListener<T> listener);
+    }
+
     private PagingProvider<T> pageProvider;
+    private RangePagingProvider<T> rangePagingProvider;
     private final CountProvider countProvider;
 
     // Vaadin table by default has 15 rows, 2x that to cache up an down
@@ -99,6 +432,12 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
     // normal scrolling just 0-1 per user interaction
     public static final int DEFAULT_PAGE_SIZE = 15 + 15 * 2;
 
+    /**
+     * The default time LazyList waits for an asynchronously loaded page
+     * before returning placeholders, in milliseconds.
+     */
+    public static final long DEFAULT_FETCH_DEADLINE = 100;
+
     public int getMaxPages() {
         return maxPages;
     }
@@ -117,10 +456,54 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
 
     private int maxPages = 3;
 
-    List<List<T>> pages = new ArrayList<>();
+    // written in writeObject, unless the cache is transient
+    transient List<List<T>> pages = new ArrayList<>();
+    private boolean cacheSerialized = true;
+    private boolean softPages;
 
     private int pageIndex = -10;
-    private final int pageSize;
+    private int pageSize;
+    private AdaptivePageSize adaptivePageSize;
+
+    private PageStore<T> pageStore;
+    private IndexProvider<T> indexProvider;
+    private ContainsProvider<T> containsProvider;
+
+    private transient SharedPageCache sharedPageCache;
+
+    private transient LazyListMetrics metrics;
+
+    private transient Executor prefetchExecutor;
+    private transient Executor parallelLoadingExecutor;
+    private transient Map<Integer, Future<List<T>>> prefetches;
+    private int lastAccessedPage = -1;
+    private int accessDirection;
+
+    private PlaceholderProvider<T> placeholderProvider;
+    private long fetchDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(
+            DEFAULT_FETCH_DEADLINE);
+    private final List<PageLoadListener> pageLoadListeners = new CopyOnWriteArrayList<>();
+    private transient Map<Integer, CompletableFuture<List<T>>> asyncLoads;
+    private transient boolean waitForPages;
+
+    private transient Executor countExecutor;
+    private transient FutureTask<Integer> pendingCount;
+    private boolean sizeEstimated;
+    // the previous count is used while the expired count is refreshed
+    private transient boolean countRefreshing;
+    private final List<SizeChangeListener> sizeChangeListeners = new CopyOnWriteArrayList<>();
+
+    private long pageTimeToLiveNanos;
+    private long countTimeToLiveNanos;
+    private PageVersionProvider pageVersionProvider;
+    private transient Map<Integer, PageState> pageStates;
+    private transient volatile long countLoaded;
+    private transient Set<Integer> invalidatedPages;
+
+    // Without a count provider: rows known to exist and the size once the
+    // end of the list has been fetched
+    private volatile int knownRowCount;
+    private volatile int exactRowCount = -1;
 
     protected LazyList(CountProvider countProvider, int pageSize) {
         this.countProvider = countProvider;
@@ -178,96 +561,1741 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
         this.pageSize = pageSize;
     }
 
-    @Override
-    public T get(final int index) {
-        final int pageIndexForReqest = index / pageSize;
-        final int indexOnPage = index % pageSize;
+    public boolean isCacheSerialized() {
+        return cacheSerialized;
+    }
 
-        // Find page from cache
-        List<T> page = findPageFromCache(pageIndexForReqest);
+    /**
+     * Sets whether the cached pages and size are serialized with the list.
+     * By default they are, so a deserialized list continues where it was
+     * left. When a session is replicated or passivated often, e.g. in a
+     * cluster, it is typically cheaper to serialize only the providers and
+     * other settings of the list, and let the deserialized list reload the
+     * pages and the size on demand.
+     *
+     * @param cacheSerialized false if the cached pages and size should be
+     * transient
+     * @see org.vaadin.viritin.lazy.LruPageStore
+     */
+    public void setCacheSerialized(boolean cacheSerialized) {
+        this.cacheSerialized = cacheSerialized;
+    }
 
-        if (page == null) {
-            if (pageIndex >= 0) {
-                if (pageIndexForReqest > pageIndex && pageIndexForReqest < pageIndex + pages.size() + maxPages) {
-                    // load next n pages forward
-                    while (pageIndexForReqest >= pageIndex + pages.size()) {
-                        loadNextPage();
-                    }
-                } else if (pageIndexForReqest < pageIndex && pageIndexForReqest > pageIndex - maxPages) {
-                    //load prev page to cache
-                    while (pageIndexForReqest < pageIndex) {
-                        loadPreviousPage();
-                    }
-                } else {
-                    initCacheFormPage(pageIndexForReqest);
-                }
-            } else {
-                // first page to load
-                initCacheFormPage(pageIndexForReqest);
-            }
-            page = findPageFromCache(pageIndexForReqest);
-        }
+    public boolean isSoftPages() {
+        return softPages;
+    }
 
-        return page != null ? page.get(indexOnPage) : null;
+    /**
+     * Sets whether loaded pages are held through soft references, both in the
+     * cached window and in the page store. The garbage collector then
+     * reclaims the least recently used pages of all lists when the heap is
+     * about to run out, e.g. pages of idle sessions during a load spike, and
+     * the list loads them again transparently when they are next accessed.
+     * This trades the risk of running out of memory to extra queries. Pages
+     * in the shared page cache are not affected. Reclaimed pages are not
+     * loaded by {@link #indexOf(Object)}, {@link #contains(Object)} or
+     * serialization, and if a reloaded page has a different number of rows,
+     * the size is counted again.
+     * <p>
+     * The setting applies to pages loaded after it has been changed, so it is
+     * best set right after creating the list.
+     *
+     * @param softPages true if loaded pages should be softly referenced
+     */
+    public void setSoftPages(boolean softPages) {
+        this.softPages = softPages;
     }
 
-    protected void initCacheFormPage(final int pageIndexForReqest) {
-        // clear cache
-        pageIndex = pageIndexForReqest;
-        pages.clear();
-        pages.add(findEntities(pageIndex * pageSize));
+    public PageStore<T> getPageStore() {
+        return pageStore;
     }
 
-    protected List<T> findEntities(int i) {
-        return pageProvider.findEntities(i);
+    /**
+     * Sets a store where all loaded pages are saved and looked up before
+     * making a backend request. The store is cleared when the list is reset.
+     *
+     * @param pageStore the store for pages, null (default) if only the
+     * window of maxPages adjacent pages should be cached
+     * @see org.vaadin.viritin.lazy.LruPageStore
+     */
+    public void setPageStore(PageStore<T> pageStore) {
+        this.pageStore = pageStore;
     }
 
-    private Integer cachedSize;
+    public IndexProvider<T> getIndexProvider() {
+        return indexProvider;
+    }
 
-    @Override
-    public int size() {
-        if (cachedSize == null) {
-            cachedSize = countProvider.size();
-        }
-        return cachedSize;
+    /**
+     * Sets the provider used to find the index of an entity from the backend,
+     * if it is not in the pages currently cached in memory. Without one,
+     * indexOf and contains iterate the list, which loads all pages from the
+     * backend.
+     *
+     * @param indexProvider the provider used to detect indexes of entities
+     */
+    public void setIndexProvider(IndexProvider<T> indexProvider) {
+        this.indexProvider = indexProvider;
     }
 
-    private transient WeakHashMap<T, Integer> indexCache;
+    public ContainsProvider<T> getContainsProvider() {
+        return containsProvider;
+    }
 
-    private Map<T, Integer> getIndexCache() {
-        if (indexCache == null) {
-            indexCache = new WeakHashMap<>();
-        }
-        return indexCache;
+    /**
+     * Sets the provider used to check if an entity is in the list, if it is
+     * not in the pages currently cached in memory. If not set, but an
+     * IndexProvider is available, that is used instead.
+     *
+     * @param containsProvider the provider used to check if entities are in
+     * the list
+     */
+    public void setContainsProvider(ContainsProvider<T> containsProvider) {
+        this.containsProvider = containsProvider;
     }
 
-    @Override
-    public int indexOf(Object o) {
-        // optimize: check the buffers first
-        Integer indexViaCache = getIndexCache().get(o);
-        if (indexViaCache != null) {
-            return indexViaCache;
+    public SharedPageCache getSharedPageCache() {
+        return sharedPageCache;
+    }
+
+    /**
+     * Sets an application scoped cache, shared by all lists making the same
+     * query. The cache is only used if the paging provider implements
+     * {@link QueryKeyProvider}. The cache is not serialized, so it needs to
+     * be set again after deserialization.
+     *
+     * @param sharedPageCache the shared cache, null (default) to disable
+     */
+    public void setSharedPageCache(SharedPageCache sharedPageCache) {
+        this.sharedPageCache = sharedPageCache;
+    }
+
+    /**
+     * Returns the key identifying the query for the {@link SharedPageCache}.
+     *
+     * @return the key of the query, null if pages should not be shared
+     */
+    protected Object getQueryKey() {
+        if (countProvider == null) {
+            // the extra rows detecting the end of the list are not cached
+            return null;
         }
-        for (int i = 0; i < pages.size(); i++) {
-            List<T> page = pages.get(i);
-            int indexOf = page.indexOf(o);
-            if (indexOf != -1) {
-                indexViaCache = (pageIndex + i) * pageSize + indexOf;
-            }
+        if (pageProvider instanceof QueryKeyProvider) {
+            return ((QueryKeyProvider) pageProvider).getQueryKey();
         }
-        if (indexViaCache != null) {
-            /*
-             * In some cases (selected value) components like Vaadin combobox calls this, then stuff from elsewhere with indexes and
-             * finally again this method with the same object (possibly on other page). Thus, to avoid heavy iterating,
-             * cache the location.
-             */
-            getIndexCache().put((T) o, indexViaCache);
-            return indexViaCache;
+        if (rangePagingProvider instanceof QueryKeyProvider) {
+            return ((QueryKeyProvider) rangePagingProvider).getQueryKey();
         }
-        // fall back to iterating, this will most likely be sloooooow....
+        return null;
+    }
+
+    /**
+     * @return the key of the pages in the shared page cache, containing the
+     * page size if it is adaptive
+     */
+    private Object getSharedCacheKey() {
+        final Object queryKey = getQueryKey();
+        if (queryKey == null || adaptivePageSize == null) {
+            return queryKey;
+        }
+        return Arrays.asList(queryKey, pageSize);
+    }
+
+    /**
+     * Constructs a new LazyList with given providers and default page size of
+     * DEFAULT_PAGE_SIZE (30).
+     *
+     * @param rangePagingProvider the interface via ranges of entities are
+     * requested
+     * @param countProvider the interface via the total count of entities is
+     * detected.
+     */
+    public LazyList(RangePagingProvider<T> rangePagingProvider, CountProvider countProvider) {
+        this(rangePagingProvider, countProvider, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructs a new LazyList with given providers and page size.
+     *
+     * @param rangePagingProvider the interface via ranges of entities are
+     * requested
+     * @param countProvider the interface via the total count of entities is
+     * detected.
+     * @param pageSize the page size that should be used
+     */
+    public LazyList(RangePagingProvider<T> rangePagingProvider, CountProvider countProvider, int pageSize) {
+        this.rangePagingProvider = rangePagingProvider;
+        this.countProvider = countProvider;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Constructs a new LazyList that doesn't count its entities, with default
+     * page size of DEFAULT_PAGE_SIZE (30). See
+     * {@link #LazyList(RangePagingProvider, int)}.
+     *
+     * @param rangePagingProvider the interface via ranges of entities are
+     * requested
+     */
+    public LazyList(RangePagingProvider<T> rangePagingProvider) {
+        this(rangePagingProvider, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructs a new LazyList that doesn't count its entities, e.g. for
+     * infinite scrolling feeds where a count query would be too expensive.
+     * Each page is fetched with one extra row to detect whether there are more
+     * entities. The size of the list includes the rows known to exist and
+     * grows as the list is scrolled, {@link SizeChangeListener}s are notified
+     * when it changes.
+     * <p>
+     * Pages of lists without a count are not shared via
+     * {@link SharedPageCache}.
+     *
+     * @param rangePagingProvider the interface via ranges of entities are
+     * requested
+     * @param pageSize the page size that should be used
+     */
+    public LazyList(RangePagingProvider<T> rangePagingProvider, int pageSize) {
+        this(rangePagingProvider, null, pageSize);
+    }
+
+    public PlaceholderProvider<T> getPlaceholderProvider() {
+        return placeholderProvider;
+    }
+
+    /**
+     * Sets the provider for rows returned while pages are still loading
+     * asynchronously. Without a placeholder provider the list waits until the
+     * page is loaded.
+     *
+     * @param placeholderProvider the provider of placeholder rows
+     */
+    public void setPlaceholderProvider(PlaceholderProvider<T> placeholderProvider) {
+        this.placeholderProvider = placeholderProvider;
+    }
+
+    /**
+     * @param unit the unit of the returned value
+     * @return the time waited for an asynchronously loaded page before
+     * placeholders are returned
+     */
+    public long getFetchDeadline(TimeUnit unit) {
+        return unit.convert(fetchDeadlineNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long the list waits for an asynchronously loaded page before
+     * it returns placeholders for the rows of the page. By default
+     * DEFAULT_FETCH_DEADLINE milliseconds.
+     *
+     * @param timeout the time to wait, 0 to return placeholders unless the
+     * page is available immediately
+     * @param unit the unit of timeout
+     */
+    public void setFetchDeadline(long timeout, TimeUnit unit) {
+        this.fetchDeadlineNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Adds a listener notified when a page, for which placeholders were
+     * returned, has been loaded.
+     *
+     * @param listener the listener
+     */
+    public void addPageLoadListener(PageLoadListener listener) {
+        pageLoadListeners.add(listener);
+    }
+
+    public void removePageLoadListener(PageLoadListener listener) {
+        pageLoadListeners.remove(listener);
+    }
+
+    public Executor getCountExecutor() {
+        return countExecutor;
+    }
+
+    /**
+     * Enables counting the entities in the background. The count query is
+     * then started with the given executor and, if the list is empty, the
+     * first page is loaded concurrently with it. If the count provider is an
+     * {@link EstimatingCountProvider}, size() returns the estimate until the
+     * exact count is available and {@link SizeChangeListener}s are notified
+     * when it differs from the estimate. If the estimate is too large, getting
+     * a row past the actual end corrects the size, notifies the listeners and
+     * throws an IndexOutOfBoundsException, like getting any row past the end.
+     * <p>
+     * The count provider is called from the thread of the executor, so it
+     * must not depend on e.g. thread locals of the UI thread. The executor is
+     * not serialized, so it needs to be set again after deserialization.
+     *
+     * @param countExecutor the executor used for count queries, null
+     * (default) to count synchronously
+     */
+    public void setCountExecutor(Executor countExecutor) {
+        this.countExecutor = countExecutor;
+    }
+
+    /**
+     * @return true if size() currently returns an estimate instead of the
+     * exact count
+     */
+    public boolean isSizeEstimated() {
+        return sizeEstimated;
+    }
+
+    /**
+     * Adds a listener notified when the size of the list changes after it has
+     * been reported, e.g. when the exact count replaces an estimate.
+     *
+     * @param listener the listener
+     */
+    public void addSizeChangeListener(SizeChangeListener listener) {
+        sizeChangeListeners.add(listener);
+    }
+
+    public void removeSizeChangeListener(SizeChangeListener listener) {
+        sizeChangeListeners.remove(listener);
+    }
+
+    /**
+     * @param unit the unit of the returned value
+     * @return the time after which cached pages are refreshed, 0 if they
+     * don't expire
+     */
+    public long getPageTimeToLive(TimeUnit unit) {
+        return unit.convert(pageTimeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time after which cached pages expire. An expired page is
+     * refreshed, alone, the next time it is accessed, so that the shown data
+     * is at most this old without reloading the whole list. If a
+     * {@link PageVersionProvider} is set, the rows are only fetched again if
+     * their version has changed.
+     *
+     * @param timeToLive the time to live of pages, 0 (default) to keep pages
+     * until the list is reset
+     * @param unit the unit of timeToLive
+     */
+    public void setPageTimeToLive(long timeToLive, TimeUnit unit) {
+        this.pageTimeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * @param unit the unit of the returned value
+     * @return the time after which the count is refreshed, 0 if it doesn't
+     * expire
+     */
+    public long getCountTimeToLive(TimeUnit unit) {
+        return unit.convert(countTimeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time after which the cached count expires. With a count
+     * executor the expired count is used until the new count is available,
+     * otherwise the count is refreshed synchronously. In both cases
+     * {@link SizeChangeListener}s are notified if the size changes.
+     *
+     * @param timeToLive the time to live of the count, 0 (default) to keep it
+     * until the list is reset
+     * @param unit the unit of timeToLive
+     */
+    public void setCountTimeToLive(long timeToLive, TimeUnit unit) {
+        this.countTimeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    public PageVersionProvider getPageVersionProvider() {
+        return pageVersionProvider;
+    }
+
+    /**
+     * Sets the provider used to check whether an expired page has changed
+     * before fetching its rows again. The version of a page is first asked
+     * when it expires for the first time.
+     *
+     * @param pageVersionProvider the provider of page versions
+     * @see #setPageTimeToLive(long, TimeUnit)
+     */
+    public void setPageVersionProvider(PageVersionProvider pageVersionProvider) {
+        this.pageVersionProvider = pageVersionProvider;
+    }
+
+    public AdaptivePageSize getAdaptivePageSize() {
+        return adaptivePageSize;
+    }
+
+    /**
+     * Enables adaptive page size. The page size is then tuned within the
+     * bounds of the given AdaptivePageSize, based on the ranges requested
+     * from the list and the measured latency of backend calls. When the page
+     * size changes, the cached rows are split to pages of the new size and
+     * the page store is cleared.
+     * <p>
+     * Only supported with providers of ranges, like a
+     * {@link RangePagingProvider}, as a {@link PagingProvider} decides the
+     * page size itself. Pages of lists
+     * with adaptive page size are stored to a shared page cache with a key
+     * containing the page size.
+     *
+     * @param adaptivePageSize the tuner for the page size, null (default)
+     * disables adaptive page size
+     */
+    public void setAdaptivePageSize(AdaptivePageSize adaptivePageSize) {
+        if (adaptivePageSize != null && (!isRangeLoadingSupported()
+                || isAsyncLoadingSupported())) {
+            throw new IllegalStateException(
+                    "Adaptive page size requires a RangePagingProvider");
+        }
+        this.adaptivePageSize = adaptivePageSize;
+    }
+
+    public Executor getParallelLoadingExecutor() {
+        return parallelLoadingExecutor;
+    }
+
+    /**
+     * Enables concurrent loading of pages. When a request spans several
+     * pages that are not cached, e.g. a large subList or a jump forward, the
+     * pages are loaded concurrently with the given executor and then added to
+     * the cache in order. Not used if the provider can load ranges with a
+     * single call, see {@link RangePagingProvider}.
+     * <p>
+     * The paging provider is called from the threads of the executor, so it
+     * must be thread safe and must not depend on e.g. thread locals of the UI
+     * thread. The executor is not serialized, so it needs to be set again
+     * after deserialization.
+     *
+     * @param parallelLoadingExecutor the executor used to load pages
+     * concurrently, null (default) to load pages one by one
+     * @see org.vaadin.viritin.lazy.PageLoadingExecutors
+     */
+    public void setParallelLoadingExecutor(Executor parallelLoadingExecutor) {
+        this.parallelLoadingExecutor = parallelLoadingExecutor;
+    }
+
+    /**
+     * @return the metrics receiving statistics of this list,
+     * LazyListMetrics.NONE by default
+     */
+    public LazyListMetrics getMetrics() {
+        return metrics == null ? LazyListMetrics.NONE : metrics;
+    }
+
+    /**
+     * Sets the metrics that receive statistics about cache usage and backend
+     * calls of this list, e.g. a shared
+     * {@link org.vaadin.viritin.lazy.LazyListStatistics} instance exposed via
+     * JMX. By default no statistics are collected. The metrics are not
+     * serialized, so they need to be set again after deserialization.
+     *
+     * @param metrics the metrics, LazyListMetrics.NONE or null to disable
+     */
+    public void setMetrics(LazyListMetrics metrics) {
+        this.metrics = metrics == LazyListMetrics.NONE ? null : metrics;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Enables asynchronous prefetching of pages. When set, LazyList follows
+     * the direction in which the list is accessed and, once the first or the
+     * last page of the cached window is reached, loads the next (or previous)
+     * page with the given executor before it is actually needed. Prefetched
+     * pages are merged to the cached window on the next access, so the window
+     * is never modified by the background thread.
+     * <p>
+     * Note, that the paging provider is then called from the thread of the
+     * executor, so it must not depend on e.g. thread locals of the UI thread.
+     * The executor is not serialized, so it needs to be set again after
+     * deserialization.
+     *
+     * @param prefetchExecutor the executor used to load pages in advance, null
+     * (default) disables prefetching
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @Override
+    public T get(final int index) {
+        if (adaptivePageSize != null) {
+            adaptPageSize(index);
+        }
+        final int pageIndexForReqest = index / pageSize;
+        final int indexOnPage = index % pageSize;
+
+        if (prefetches != null) {
+            mergePrefetchedPages();
+        }
+
+        // Find page from cache
+        List<T> page = findPageFromCache(pageIndexForReqest);
+        if (page instanceof PlaceholderPage) {
+            page = resolvePlaceholders(pageIndexForReqest, (PlaceholderPage<T>) page);
+        } else if (page != null && isInvalidated(pageIndexForReqest)) {
+            invalidatedPages.remove(pageIndexForReqest);
+            page = reloadPage(pageIndexForReqest,
+                    pageVersion(pageIndexForReqest));
+            pages.set(pageIndexForReqest - pageIndex, page);
+        } else if (page != null && isExpired(pageIndexForReqest)) {
+            page = revalidatePage(pageIndexForReqest, page);
+            pages.set(pageIndexForReqest - pageIndex, page);
+        }
+        if (metrics != null) {
+            if (page == null) {
+                metrics.cacheMiss();
+            } else {
+                metrics.cacheHit();
+            }
+        }
+
+        if (page == null) {
+            if (pageIndex >= 0) {
+                if (pageIndexForReqest > pageIndex && pageIndexForReqest < pageIndex + pages.size() + maxPages) {
+                    // load next n pages forward
+                    if (isMultiPageLoadingSupported() && pageIndexForReqest > pageIndex + pages.size()) {
+                        appendPages(loadPages(pageIndex + pages.size(),
+                                pageIndexForReqest));
+                    }
+                    while (pageIndexForReqest >= pageIndex + pages.size()) {
+                        loadNextPage();
+                    }
+                } else if (pageIndexForReqest < pageIndex && pageIndexForReqest > pageIndex - maxPages) {
+                    //load prev page to cache
+                    if (isMultiPageLoadingSupported() && pageIndexForReqest < pageIndex - 1) {
+                        prependPages(loadPages(pageIndexForReqest, pageIndex - 1));
+                    }
+                    while (pageIndexForReqest < pageIndex) {
+                        loadPreviousPage();
+                    }
+                } else {
+                    initCacheFormPage(pageIndexForReqest);
+                }
+            } else {
+                // first page to load
+                initCacheFormPage(pageIndexForReqest);
+            }
+            page = findPageFromCache(pageIndexForReqest);
+        }
+
+        if (prefetchExecutor != null) {
+            prefetch(pageIndexForReqest);
+        }
+
+        if (sizeEstimated && page != null && indexOnPage >= page.size()) {
+            if (!page.isEmpty()) {
+                // the estimate was too large, the last page reveals the real size
+                correctEstimatedSize(pageIndexForReqest * pageSize + page.size());
+            } else {
+                // beyond the real end, only the exact count tells where it is
+                pendingCount.run();
+                cachedSize = awaitCount();
+            }
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + cachedSize);
+        }
+        return page != null ? page.get(indexOnPage) : null;
+    }
+
+    /**
+     * Applies the page size suggested by the adaptive page size, if the
+     * requested row is not in the cached window. The rows of the window are
+     * kept, split to pages of the new size.
+     */
+    private void adaptPageSize(int index) {
+        if (findPageFromCache(index / pageSize) != null) {
+            return;
+        }
+        final int newPageSize = adaptivePageSize.getPageSize(pageSize);
+        if (newPageSize == pageSize) {
+            return;
+        }
+        final int oldPageSize = pageSize;
+        final int windowStart = pageIndex * oldPageSize;
+        final List<T> rows = new ArrayList<>();
+        boolean windowAtEnd = false;
+        if (pageIndex >= 0) {
+            for (List<T> page : pages) {
+                rows.addAll(page);
+                windowAtEnd = page.size() < oldPageSize;
+            }
+        }
+        cancelPrefetches();
+        if (pageStore != null) {
+            pageStore.clear();
+        }
+        if (pageStates != null) {
+            pageStates.clear();
+        }
+        if (invalidatedPages != null) {
+            invalidatedPages.clear();
+        }
+        pageSize = newPageSize;
+        // keep about the same number of rows in memory
+        maxPages = Math.max(3, (maxPages * oldPageSize + newPageSize - 1)
+                / newPageSize);
+        pages.clear();
+        final int firstPage = (windowStart + newPageSize - 1) / newPageSize;
+        for (int from = firstPage * newPageSize - windowStart; from < rows.
+                size(); from += newPageSize) {
+            final int to = Math.min(from + newPageSize, rows.size());
+            if (to - from < newPageSize && !windowAtEnd) {
+                // the rest of the page is not known
+                break;
+            }
+            pages.add(retain(firstPage + pages.size(), new ArrayList<>(rows.
+                    subList(from, to))));
+            if (pageTimeToLiveNanos > 0) {
+                getPageStates().put(firstPage + pages.size() - 1,
+                        new PageState(null));
+            }
+        }
+        pageIndex = pages.isEmpty() ? -10 : firstPage;
+    }
+
+    protected void initCacheFormPage(final int pageIndexForReqest) {
+        if (metrics != null && !pages.isEmpty()) {
+            metrics.cacheReset();
+        }
+        // clear cache
+        pageIndex = pageIndexForReqest;
+        pages.clear();
+        pages.add(loadPage(pageIndex));
+    }
+
+    /**
+     * Loads the page with given index, using the page store or the result of
+     * a pending prefetch if available.
+     *
+     * @param pageIndexToLoad the index of the page
+     * @return the entities on the page
+     */
+    private List<T> loadPage(int pageIndexToLoad) {
+        final Object queryKey = sharedPageCache != null ? getSharedCacheKey() : null;
+        List<T> page = findPageFromStores(pageIndexToLoad, queryKey);
+        if (page != null && isExpired(pageIndexToLoad)) {
+            return revalidatePage(pageIndexToLoad, page);
+        }
+        if (page == null) {
+            if (placeholderProvider != null && !waitForPages && isAsyncLoadingSupported()) {
+                page = fetchPageAsync(pageIndexToLoad);
+                if (page instanceof PlaceholderPage) {
+                    return page;
+                }
+                page = cachePage(pageIndexToLoad, page, queryKey);
+            } else {
+                // the version is read before the rows, so that changes made
+                // in between are detected when the page expires
+                final Object version = pageVersion(pageIndexToLoad);
+                page = cachePage(pageIndexToLoad, fetchPage(pageIndexToLoad),
+                        queryKey, version);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Starts loading the page asynchronously and waits for it
+     * until the fetch deadline. Returns placeholders if the page is not
+     * available by then.
+     */
+    private List<T> fetchPageAsync(int pageIndexToLoad) {
+        CompletableFuture<List<T>> future = asyncLoads == null ? null : asyncLoads.
+                get(pageIndexToLoad);
+        if (future == null) {
+            final int firstRow = pageIndexToLoad * pageSize;
+            final long start = System.nanoTime();
+            future = findEntitiesAsync(firstRow);
+            try {
+                List<T> page = future.get(fetchDeadlineNanos,
+                        TimeUnit.NANOSECONDS);
+                if (metrics != null) {
+                    metrics.pagesFetched(System.nanoTime() - start, 1, page.
+                            size());
+                }
+                return page;
+            } catch (TimeoutException ex) {
+                if (asyncLoads == null) {
+                    asyncLoads = new HashMap<>();
+                }
+                asyncLoads.put(pageIndexToLoad, future);
+                future.whenComplete((page, error) -> firePageLoaded(firstRow,
+                        page == null ? 0 : page.size()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading a page", ex);
+            } catch (ExecutionException ex) {
+                throw asRuntimeException(ex.getCause());
+            }
+        } else if (future.isDone()) {
+            asyncLoads.remove(pageIndexToLoad);
+            return awaitPage(future);
+        }
+        final int firstRow = pageIndexToLoad * pageSize;
+        final int rows = Math.max(0, Math.min(pageSize, size() - firstRow));
+        final PlaceholderPage<T> placeholders = new PlaceholderPage<>(rows,
+                future);
+        for (int i = 0; i < rows; i++) {
+            placeholders.add(placeholderProvider.createPlaceholder(firstRow + i));
+        }
+        return placeholders;
+    }
+
+    /**
+     * Replaces the placeholders in the cached window with the actual page, if
+     * it has been loaded.
+     */
+    private List<T> resolvePlaceholders(int pageIndexToResolve,
+            PlaceholderPage<T> placeholders) {
+        List<T> page;
+        if (placeholders.future == null) {
+            // deserialized, the load was not completed
+            page = fetchPage(pageIndexToResolve);
+        } else if (placeholders.future.isDone() || waitForPages) {
+            page = awaitPage(placeholders.future);
+            if (asyncLoads != null) {
+                asyncLoads.remove(pageIndexToResolve);
+            }
+        } else {
+            return placeholders;
+        }
+        page = cachePage(pageIndexToResolve, page, sharedPageCache != null ? getSharedCacheKey() : null);
+        pages.set(pageIndexToResolve - pageIndex, page);
+        return page;
+    }
+
+    private void firePageLoaded(int firstRow, int rowCount) {
+        for (PageLoadListener listener : pageLoadListeners) {
+            try {
+                listener.pageLoaded(firstRow, rowCount);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(LazyList.class.getName()).log(Level.WARNING,
+                        "PageLoadListener failed", ex);
+            }
+        }
+    }
+
+    private List<T> awaitPage(CompletableFuture<List<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw asRuntimeException(ex.getCause());
+        }
+    }
+
+    private static RuntimeException asRuntimeException(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException("Loading a page failed", cause);
+    }
+
+    private List<T> findPageFromStores(int pageIndexToFind, Object queryKey) {
+        if (pageStore != null) {
+            List<T> page = pageStore.get(pageIndexToFind);
+            if (page != null) {
+                return page;
+            }
+        }
+        if (queryKey != null) {
+            List<T> page = sharedPageCache.get(queryKey, pageIndexToFind);
+            if (page != null) {
+                page = retain(pageIndexToFind, page);
+                if (pageStore != null) {
+                    pageStore.put(pageIndexToFind, page);
+                }
+                return page;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a loaded page to the page store and the shared cache.
+     *
+     * @return the page to keep in the window, softly referenced if enabled
+     */
+    private List<T> cachePage(int pageIndexToCache, List<T> page, Object queryKey) {
+        return cachePage(pageIndexToCache, page, queryKey, pageVersion(
+                pageIndexToCache));
+    }
+
+    /**
+     * Stores a loaded page whose version is already known.
+     */
+    private List<T> cachePage(int pageIndexToCache, List<T> page,
+            Object queryKey, Object version) {
+        if (queryKey != null) {
+            sharedPageCache.put(queryKey, pageIndexToCache, page);
+        }
+        page = retain(pageIndexToCache, page);
+        if (pageStore != null) {
+            pageStore.put(pageIndexToCache, page);
+        }
+        if (pageTimeToLiveNanos > 0) {
+            getPageStates().put(pageIndexToCache, new PageState(version));
+        }
+        return page;
+    }
+
+    /**
+     * @return the current version of the page, null if pages don't expire or
+     * no version provider is set
+     */
+    private Object pageVersion(int pageIndexToCheck) {
+        if (pageTimeToLiveNanos <= 0 || pageVersionProvider == null) {
+            return null;
+        }
+        return pageVersionProvider.getVersion(pageIndexToCheck * pageSize,
+                pageSize);
+    }
+
+    /**
+     * Wraps the page to a SoftPage if pages are softly referenced.
+     */
+    private List<T> retain(int pageIndexToRetain, List<T> page) {
+        if (!softPages || page instanceof LazyList.SoftPage
+                || page instanceof PlaceholderPage) {
+            return page;
+        }
+        return new SoftPage(pageIndexToRetain, page);
+    }
+
+    /**
+     * Loads a page whose rows were reclaimed by the garbage collector.
+     */
+    private List<T> reloadReclaimedPage(int pageIndexToReload) {
+        if (metrics != null) {
+            metrics.pagesEvicted(1);
+        }
+        final Object queryKey = sharedPageCache != null ? getSharedCacheKey() : null;
+        List<T> page = queryKey != null ? sharedPageCache.<T>get(queryKey,
+                pageIndexToReload) : null;
+        if (page == null) {
+            page = findPageOnce(pageIndexToReload, null, null, queryKey);
+        }
+        return page;
+    }
+
+    /**
+     * Called when a reclaimed page is reloaded with a different number of
+     * rows, i.e. rows have been added or removed in the backend meanwhile.
+     */
+    private void reclaimedPageResized() {
+        if (countProvider == null || cachedSize == null || pendingCount != null) {
+            // lists without a count update their size as rows are fetched
+            return;
+        }
+        final int oldSize = cachedSize;
+        cachedSize = countEntities();
+        if (cachedSize != oldSize) {
+            fireSizeChanged(cachedSize);
+        }
+    }
+
+    private Map<Integer, PageState> getPageStates() {
+        if (pageStates == null) {
+            pageStates = new HashMap<>();
+        }
+        return pageStates;
+    }
+
+    private boolean isExpired(int pageIndexToCheck) {
+        if (pageTimeToLiveNanos <= 0) {
+            return false;
+        }
+        PageState state = getPageStates().get(pageIndexToCheck);
+        // pages loaded before the time to live was set, or deserialized
+        return state == null || System.nanoTime() - state.loaded > pageTimeToLiveNanos;
+    }
+
+    /**
+     * Fetches an expired page again, unless its version tells it has not
+     * changed.
+     *
+     * @param pageIndexToRevalidate the index of the page
+     * @param page the cached, expired page
+     * @return the page to be used
+     */
+    private List<T> revalidatePage(int pageIndexToRevalidate, List<T> page) {
+        final PageState state = getPageStates().get(pageIndexToRevalidate);
+        final Object version = pageVersion(pageIndexToRevalidate);
+        if (version != null && state != null && version.equals(state.version)) {
+            getPageStates().put(pageIndexToRevalidate, new PageState(version));
+            return page;
+        }
+        return reloadPage(pageIndexToRevalidate, version);
+    }
+
+    /**
+     * Fetches a cached page again from the backend.
+     *
+     * @param pageIndexToReload the index of the page
+     * @param version the version of the page read before the reload, null if
+     * unknown
+     * @return the fresh page
+     */
+    private List<T> reloadPage(int pageIndexToReload, Object version) {
+        final List<T> fresh = cachePage(pageIndexToReload, findPage(
+                pageIndexToReload, null, null),
+                sharedPageCache != null ? getSharedCacheKey() : null, version);
+        if (indexCache != null) {
+            // the rows may have moved
+            indexCache.clear();
+        }
+        return fresh;
+    }
+
+    private boolean isInvalidated(int pageIndexToCheck) {
+        return invalidatedPages != null && invalidatedPages.contains(
+                pageIndexToCheck);
+    }
+
+    /**
+     * Invalidates the cached rows in the given range. Pages containing them
+     * are removed from the page store and the shared cache, and pages in the
+     * cached window are fetched again the next time they are accessed. Other
+     * pages and the size of the list are kept.
+     *
+     * @param fromIndex the index of the first invalidated row
+     * @param toIndex the index after the last invalidated row
+     */
+    public void invalidateRange(int fromIndex, int toIndex) {
+        if (cachedSize != null) {
+            toIndex = Math.min(toIndex, cachedSize);
+        }
+        if (toIndex <= fromIndex) {
+            return;
+        }
+        final Object queryKey = sharedPageCache != null ? getSharedCacheKey() : null;
+        for (int i = fromIndex / pageSize; i <= (toIndex - 1) / pageSize; i++) {
+            if (pageStore != null) {
+                pageStore.remove(i);
+            }
+            if (queryKey != null) {
+                sharedPageCache.invalidate(queryKey, i);
+            }
+            if (prefetches != null) {
+                Future<List<T>> prefetch = prefetches.remove(i);
+                if (prefetch != null) {
+                    prefetch.cancel(false);
+                }
+            }
+            if (pageIndex >= 0 && findPageFromCache(i) != null) {
+                if (invalidatedPages == null) {
+                    invalidatedPages = new HashSet<>();
+                }
+                invalidatedPages.add(i);
+            }
+        }
+        if (indexCache != null) {
+            indexCache.clear();
+        }
+    }
+
+    /**
+     * Invalidates the cached page containing the given entity, e.g. after it
+     * has been modified, so that it is fetched again the next time it is
+     * accessed. Only pages in the cached window and entities whose index is
+     * already known are found, other pages are not cached or are fetched
+     * again anyway.
+     *
+     * @param entity the modified entity
+     * @return true if a cached page containing the entity was invalidated
+     */
+    public boolean invalidateEntity(T entity) {
+        final int index = findCachedIndex(entity);
+        if (index < 0) {
+            return false;
+        }
+        invalidateRange(index, index + 1);
+        return true;
+    }
+
+    private int findCachedIndex(Object entity) {
+        if (indexCache != null) {
+            Integer index = indexCache.get(entity);
+            if (index != null) {
+                return index;
+            }
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            List<T> page = pages.get(i);
+            if (!(page instanceof PlaceholderPage)) {
+                int indexOnPage = page.indexOf(entity);
+                if (indexOnPage >= 0) {
+                    return (pageIndex + i) * pageSize + indexOnPage;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Notifies the list that an entity has been inserted to the backend at
+     * the given index. Cached rows after it are shifted by one and the size
+     * is incremented, so the change doesn't require the list to be reset.
+     *
+     * @param index the index of the new entity
+     * @param entity the new entity
+     */
+    public void entityInserted(int index, T entity) {
+        shiftRows(index, entity, 1);
+    }
+
+    /**
+     * Notifies the list that the entity at the given index has been removed
+     * from the backend. Cached rows after it are shifted by one and the size
+     * is decremented, so the change doesn't require the list to be reset.
+     *
+     * @param index the index of the removed entity
+     */
+    public void entityRemoved(int index) {
+        shiftRows(index, null, -1);
+    }
+
+    /**
+     * Applies a change published by the backend to the cached rows. Modified
+     * entities are replaced in the cached pages, and inserted and removed
+     * entities shift the cached rows, so that the change doesn't cause
+     * queries to the backend. Entities are matched with equals, like in
+     * {@link #indexOf(Object)}.
+     * <p>
+     * If the position of an inserted or removed entity can't be resolved,
+     * the list is reset.
+     * <p>
+     * This method modifies the cached pages, so it must be called from the
+     * thread using the list, e.g. within UI.access.
+     *
+     * @param change the change
+     * @return true if the change was applied to the cached rows, false if the
+     * list was reset
+     */
+    public boolean applyChange(EntityChange<T> change) {
+        final T entity = change.getEntity();
+        int index = change.getIndex();
+        switch (change.getType()) {
+            case UPDATED:
+                patchEntity(entity);
+                return true;
+            case INSERTED:
+                if (index < 0 && indexProvider != null) {
+                    index = indexProvider.indexOf(entity);
+                }
+                if (index < 0) {
+                    reset();
+                    return false;
+                }
+                entityInserted(index, entity);
+                return true;
+            case REMOVED:
+                if (index < 0) {
+                    index = findCachedIndex(entity);
+                }
+                if (index < 0) {
+                    reset();
+                    return false;
+                }
+                entityRemoved(index);
+                return true;
+            default:
+                throw new IllegalArgumentException(change.toString());
+        }
+    }
+
+    /**
+     * Replaces the cached copy of a modified entity.
+     */
+    private void patchEntity(T entity) {
+        final int index = findCachedIndex(entity);
+        final int pageIndexToPatch = index / pageSize;
+        final List<T> page = index < 0 ? null : findPageFromCache(
+                pageIndexToPatch);
+        if (page == null || page instanceof PlaceholderPage) {
+            if (index >= 0) {
+                invalidateRange(index, index + 1);
+            } else if (pageStore != null) {
+                // the entity may be on any of the stored pages
+                pageStore.clear();
+            }
+            return;
+        }
+        List<T> patched = new ArrayList<>(page);
+        patched.set(index % pageSize, entity);
+        patched = retain(pageIndexToPatch, patched);
+        pages.set(pageIndexToPatch - pageIndex, patched);
+        if (pageStore != null) {
+            pageStore.put(pageIndexToPatch, patched);
+        }
+        if (sharedPageCache != null) {
+            final Object queryKey = getSharedCacheKey();
+            if (queryKey != null) {
+                sharedPageCache.invalidate(queryKey, pageIndexToPatch);
+            }
+        }
+    }
+
+    private void shiftRows(int index, T inserted, int delta) {
+        final int oldSize;
+        final int newSize;
+        // without a count, knownRowCount is only a lower bound of the size
+        final boolean sizeExact;
+        if (countProvider == null) {
+            synchronized (this) {
+                sizeExact = exactRowCount >= 0;
+                oldSize = exactRowCount >= 0 ? exactRowCount : knownRowCount;
+                if (exactRowCount >= 0) {
+                    exactRowCount += delta;
+                }
+                if (knownRowCount > 0) {
+                    knownRowCount = Math.max(0, knownRowCount + delta);
+                }
+                newSize = exactRowCount >= 0 ? exactRowCount : knownRowCount;
+            }
+        } else if (cachedSize != null) {
+            sizeExact = !sizeEstimated && !countRefreshing;
+            oldSize = cachedSize;
+            cachedSize += delta;
+            newSize = cachedSize;
+        } else {
+            sizeExact = false;
+            oldSize = -1;
+            newSize = -1;
+        }
+        cancelPrefetches();
+        if (indexCache != null) {
+            indexCache.clear();
+        }
+        if (pageStore != null) {
+            if (oldSize < 0) {
+                pageStore.clear();
+            } else {
+                for (int i = index / pageSize; i <= oldSize / pageSize; i++) {
+                    pageStore.remove(i);
+                }
+            }
+        }
+        if (sharedPageCache != null) {
+            final Object queryKey = getSharedCacheKey();
+            if (queryKey != null) {
+                sharedPageCache.invalidate(queryKey);
+            }
+        }
+        shiftPageMarks(index / pageSize, delta);
+        shiftWindow(index, inserted, delta, sizeExact ? oldSize : -1);
+        if (newSize != oldSize) {
+            fireSizeChanged(newSize);
+        }
+    }
+
+    /**
+     * Moves the invalidation marks and page states along with the shifted
+     * rows. The rows of a page from the given one onwards end up on the same
+     * page and the page next to it, so both get the mark and the older load
+     * time. Versions no longer match the rows and are dropped.
+     */
+    private void shiftPageMarks(int firstPage, int delta) {
+        if (invalidatedPages != null && !invalidatedPages.isEmpty()) {
+            final List<Integer> invalidated = new ArrayList<>(invalidatedPages);
+            for (Integer page : invalidated) {
+                if (page + delta >= firstPage && page >= firstPage) {
+                    invalidatedPages.add(page + delta);
+                }
+            }
+        }
+        if (pageStates != null && !pageStates.isEmpty()) {
+            final Map<Integer, PageState> states = new HashMap<>(pageStates);
+            pageStates.keySet().removeIf(page -> page >= firstPage);
+            for (Map.Entry<Integer, PageState> entry : states.entrySet()) {
+                final int page = entry.getKey();
+                if (page < firstPage) {
+                    continue;
+                }
+                for (int target : new int[]{page, page + delta}) {
+                    final PageState existing = pageStates.get(target);
+                    if (target >= firstPage && (existing == null
+                            || existing.loaded - entry.getValue().loaded > 0)) {
+                        pageStates.put(target, new PageState(
+                                entry.getValue().loaded, null));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts or removes a row in the cached window and splits the rows to
+     * pages again.
+     *
+     * @param oldSize the size before the change, -1 if not known exactly
+     */
+    private void shiftWindow(int index, T inserted, int delta, int oldSize) {
+        if (pageIndex < 0 || pages.isEmpty()) {
+            return;
+        }
+        final int windowStart = pageIndex * pageSize;
+        int windowRows = 0;
+        for (List<T> page : pages) {
+            if (page instanceof PlaceholderPage) {
+                clearWindow();
+                return;
+            }
+            windowRows += page.size();
+        }
+        final int windowEnd = windowStart + windowRows;
+        if (index < windowStart) {
+            // all cached rows move
+            clearWindow();
+            return;
+        }
+        final boolean lastPageFull = pages.get(pages.size() - 1).size() == pageSize;
+        final boolean windowAtEnd = !lastPageFull || windowEnd == oldSize;
+        if (index > windowEnd || (index == windowEnd && (delta < 0 || !windowAtEnd))) {
+            // the window is not affected
+            return;
+        }
+        final List<T> rows = new ArrayList<>(windowRows + 1);
+        for (List<T> page : pages) {
+            rows.addAll(page);
+        }
+        if (delta > 0) {
+            rows.add(index - windowStart, inserted);
+        } else {
+            rows.remove(index - windowStart);
+        }
+        pages.clear();
+        for (int from = 0; from < rows.size(); from += pageSize) {
+            final int to = Math.min(from + pageSize, rows.size());
+            if (to - from < pageSize && !windowAtEnd) {
+                // the rest of the page is not known
+                break;
+            }
+            pages.add(retain(pageIndex + pages.size(), new ArrayList<>(rows.
+                    subList(from, to))));
+        }
+        if (pages.isEmpty()) {
+            pageIndex = -10;
+        }
+    }
+
+    private void clearWindow() {
+        pages.clear();
+        pageIndex = -10;
+    }
+
+    private List<T> fetchPage(int pageIndexToLoad) {
+        if (prefetches != null) {
+            Future<List<T>> prefetch = prefetches.remove(pageIndexToLoad);
+            if (prefetch != null) {
+                try {
+                    return prefetch.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(LazyList.class.getName()).log(Level.FINE,
+                            "Prefetching page failed, loading synchronously",
+                            ex);
+                }
+            }
+        }
+        return findPageOnce(pageIndexToLoad, lastEntityOf(findPageFromCache(
+                pageIndexToLoad - 1)), firstEntityOf(findPageFromCache(
+                pageIndexToLoad + 1)), sharedPageCache != null
+                ? getSharedCacheKey() : null);
+    }
+
+    /**
+     * Fetches a page from the backend. If the page is cacheable in the shared
+     * page cache, concurrent loads of the same page in other sessions are
+     * coalesced to a single backend call.
+     */
+    private List<T> findPageOnce(int pageIndexToLoad, T previous, T next,
+            Object queryKey) {
+        if (queryKey == null) {
+            return findPage(pageIndexToLoad, previous, next);
+        }
+        return sharedPageCache.load(queryKey, pageIndexToLoad,
+                () -> findPage(pageIndexToLoad, previous, next));
+    }
+
+    /**
+     * Fetches a page from the backend, using keyset pagination if a boundary
+     * entity from a neighbouring page is known and supported by the provider.
+     */
+    private List<T> findPage(int pageIndexToLoad, T previous, T next) {
+        if (!isTimingFetches()) {
+            return findPageFromBackend(pageIndexToLoad, previous, next);
+        }
+        final long start = System.nanoTime();
+        List<T> page = findPageFromBackend(pageIndexToLoad, previous, next);
+        pagesFetched(System.nanoTime() - start, 1, page.size());
+        return page;
+    }
+
+    private boolean isTimingFetches() {
+        return metrics != null || adaptivePageSize != null;
+    }
+
+    /**
+     * Reports a backend call to the metrics and to the adaptive page size.
+     */
+    private void pagesFetched(long durationNanos, int pageCount, int rowCount) {
+        final LazyListMetrics m = metrics;
+        if (m != null) {
+            m.pagesFetched(durationNanos, pageCount, rowCount);
+        }
+        final AdaptivePageSize a = adaptivePageSize;
+        if (a != null) {
+            a.fetched(durationNanos, rowCount);
+        }
+    }
+
+    private List<T> findPageFromBackend(int pageIndexToLoad, T previous, T next) {
+        final int firstRow = pageIndexToLoad * pageSize;
+        if (previous != null) {
+            List<T> page = findEntitiesAfter(firstRow, previous);
+            if (page != null) {
+                return page;
+            }
+        }
+        if (next != null) {
+            List<T> page = findEntitiesBefore(firstRow, next);
+            if (page != null) {
+                return page;
+            }
+        }
+        return findEntities(firstRow);
+    }
+
+    private T lastEntityOf(List<T> page) {
+        return page == null || page.isEmpty() || page instanceof PlaceholderPage ? null : page.
+                get(page.size() - 1);
+    }
+
+    private T firstEntityOf(List<T> page) {
+        return page == null || page.isEmpty() || page instanceof PlaceholderPage ? null : page.
+                get(0);
+    }
+
+    /**
+     * Detects the direction the list is being accessed and starts loading the
+     * page following the cached window, if the access hits the edge of it.
+     *
+     * @param accessedPage the index of the page that was just accessed
+     */
+    private void prefetch(int accessedPage) {
+        if (accessedPage != lastAccessedPage) {
+            accessDirection = accessedPage > lastAccessedPage ? 1 : -1;
+            lastAccessedPage = accessedPage;
+        }
+        if (accessDirection > 0 && accessedPage == pageIndex + pages.size() - 1) {
+            int next = accessedPage + 1;
+            if (next * pageSize < size()) {
+                startPrefetch(next);
+            }
+        } else if (accessDirection < 0 && accessedPage == pageIndex && pageIndex > 0) {
+            startPrefetch(pageIndex - 1);
+        }
+    }
+
+    private void startPrefetch(final int pageIndexToLoad) {
+        if (prefetches == null) {
+            prefetches = new HashMap<>();
+        } else if (prefetches.containsKey(pageIndexToLoad)) {
+            return;
+        }
+        if (pageStore != null && pageStore.contains(pageIndexToLoad)) {
+            return;
+        }
+        final Object queryKey = sharedPageCache != null ? getSharedCacheKey() : null;
+        if (queryKey != null && sharedPageCache.get(queryKey, pageIndexToLoad) != null) {
+            return;
+        }
+        final T previous = lastEntityOf(findPageFromCache(pageIndexToLoad - 1));
+        final T next = firstEntityOf(findPageFromCache(pageIndexToLoad + 1));
+        FutureTask<List<T>> task = new FutureTask<>(
+                () -> findPageOnce(pageIndexToLoad, previous, next, queryKey));
+        prefetches.put(pageIndexToLoad, task);
+        prefetchExecutor.execute(task);
+    }
+
+    /**
+     * Moves completed prefetches to the cached window if they are adjacent to
+     * it. Completed prefetches that no more fit to the window are discarded.
+     */
+    private void mergePrefetchedPages() {
+        Iterator<Map.Entry<Integer, Future<List<T>>>> it = prefetches.entrySet().
+                iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<List<T>>> entry = it.next();
+            Future<List<T>> prefetch = entry.getValue();
+            if (!prefetch.isDone()) {
+                continue;
+            }
+            final int prefetchedPage = entry.getKey();
+            final boolean next = prefetchedPage == pageIndex + pages.size();
+            final boolean previous = prefetchedPage == pageIndex - 1;
+            if (pageIndex >= 0 && (next || previous) && pages.size() >= maxPages) {
+                // Don't evict the page that is currently used, the prefetched
+                // page is then picked up by loadPage when needed
+                int evicted = next ? pageIndex : pageIndex + pages.size() - 1;
+                if (evicted == lastAccessedPage) {
+                    continue;
+                }
+            }
+            it.remove();
+            List<T> page;
+            try {
+                page = prefetch.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                continue;
+            }
+            if (pageIndex < 0) {
+                continue;
+            }
+            page = cachePage(prefetchedPage, page,
+                    sharedPageCache != null ? getSharedCacheKey() : null);
+            if (next) {
+                pages.add(page);
+                if (pages.size() > maxPages) {
+                    evictPage(0);
+                    pageIndex++;
+                }
+            } else if (previous) {
+                pageIndex--;
+                pages.add(0, page);
+                if (pages.size() > maxPages) {
+                    evictPage(pages.size() - 1);
+                }
+            }
+        }
+    }
+
+    protected List<T> findEntities(int i) {
+        if (rangePagingProvider != null) {
+            if (countProvider == null) {
+                return findEntitiesDetectingEnd(i, pageSize);
+            }
+            return rangePagingProvider.findEntities(i, pageSize);
+        }
+        return pageProvider.findEntities(i);
+    }
+
+    /**
+     * Fetches given range of entities from the backend.
+     *
+     * @param firstRow the index of the first row to fetch
+     * @param maxResults the maximum number of rows to fetch
+     * @return the entities or null if the provider doesn't support fetching
+     * arbitrary ranges
+     */
+    protected List<T> findEntities(int firstRow, int maxResults) {
+        if (rangePagingProvider != null) {
+            if (countProvider == null) {
+                return findEntitiesDetectingEnd(firstRow, maxResults);
+            }
+            return rangePagingProvider.findEntities(firstRow, maxResults);
+        }
+        return null;
+    }
+
+    /**
+     * Fetches one row more than requested to detect whether the list
+     * continues after the given range.
+     */
+    private List<T> findEntitiesDetectingEnd(int firstRow, int maxResults) {
+        final List<T> rows = rangePagingProvider.findEntities(firstRow,
+                maxResults + 1);
+        if (rows.size() > maxResults) {
+            rowsFound(firstRow + maxResults + 1, false);
+            return new ArrayList<>(rows.subList(0, maxResults));
+        }
+        if (!rows.isEmpty() || firstRow == 0) {
+            rowsFound(firstRow + rows.size(), true);
+        }
+        return rows;
+    }
+
+    /**
+     * Updates the size of a list without a count provider. May be called
+     * from background threads, e.g. when pages are prefetched.
+     */
+    private synchronized void rowsFound(int rowCount, boolean endOfList) {
+        final int oldSize = exactRowCount >= 0 ? exactRowCount : knownRowCount;
+        if (endOfList) {
+            exactRowCount = rowCount;
+        } else if (rowCount > knownRowCount) {
+            knownRowCount = rowCount;
+            if (exactRowCount >= 0 && exactRowCount < rowCount) {
+                // the list has grown after its end was fetched
+                exactRowCount = -1;
+            }
+        }
+        final int newSize = exactRowCount >= 0 ? exactRowCount : knownRowCount;
+        if (newSize != oldSize) {
+            fireSizeChanged(newSize);
+        }
+    }
+
+    /**
+     * @return true if the provider can fetch arbitrary ranges with
+     * {@link #findEntities(int, int)}
+     */
+    protected boolean isRangeLoadingSupported() {
+        return rangePagingProvider != null;
+    }
+
+    /**
+     * Starts fetching a page of entities from the backend without blocking.
+     *
+     * @param firstRow the index of the first row on the page
+     * @return a future completed with the page or null if asynchronous
+     * loading is not supported
+     */
+    protected CompletableFuture<List<T>> findEntitiesAsync(int firstRow) {
+        return null;
+    }
+
+    /**
+     * @return true if pages can be loaded with
+     * {@link #findEntitiesAsync(int)}
+     */
+    protected boolean isAsyncLoadingSupported() {
+        return false;
+    }
+
+    private boolean isMultiPageLoadingSupported() {
+        if (isAsyncLoadingSupported()) {
+            // pages are already loaded concurrently
+            return false;
+        }
+        return parallelLoadingExecutor != null || isRangeLoadingSupported();
+    }
+
+    /**
+     * Fetches the page following the given entity using keyset pagination.
+     *
+     * @param firstRow the index of the first row on the page
+     * @param previous the last entity of the previous page
+     * @return the page or null if keyset pagination is not supported
+     */
+    protected List<T> findEntitiesAfter(int firstRow, T previous) {
+        if (pageProvider instanceof KeysetPagingProvider) {
+            return ((KeysetPagingProvider<T>) pageProvider).findEntitiesAfter(
+                    firstRow, previous);
+        }
+        return null;
+    }
+
+    /**
+     * Fetches the page preceding the given entity using keyset pagination.
+     *
+     * @param firstRow the index of the first row on the page
+     * @param next the first entity of the following page
+     * @return the page or null if keyset pagination is not supported
+     */
+    protected List<T> findEntitiesBefore(int firstRow, T next) {
+        if (pageProvider instanceof KeysetPagingProvider) {
+            return ((KeysetPagingProvider<T>) pageProvider).findEntitiesBefore(
+                    firstRow, next);
+        }
+        return null;
+    }
+
+    private transient Integer cachedSize;
+
+    @Override
+    public int size() {
+        if (countProvider == null) {
+            if (exactRowCount < 0 && knownRowCount == 0 && pageIndex < 0) {
+                initCacheFormPage(0);
+            }
+            return exactRowCount >= 0 ? exactRowCount : knownRowCount;
+        }
+        if (countTimeToLiveNanos > 0 && cachedSize != null && pendingCount == null
+                && System.nanoTime() - countLoaded > countTimeToLiveNanos) {
+            refreshExpiredCount();
+        }
+        if (pendingCount != null && (pendingCount.isDone()
+                || !(sizeEstimated || countRefreshing))) {
+            cachedSize = awaitCount();
+        }
+        if (cachedSize == null) {
+            if (countExecutor != null) {
+                if (countProvider instanceof EstimatingCountProvider) {
+                    final int estimate = ((EstimatingCountProvider) countProvider).
+                            estimateSize();
+                    startCount(estimate);
+                    cachedSize = estimate;
+                    sizeEstimated = true;
+                } else {
+                    startCount(-1);
+                    if (pageIndex < 0) {
+                        // load the first page while counting
+                        initCacheFormPage(0);
+                    }
+                    if (cachedSize == null) {
+                        cachedSize = awaitCount();
+                    }
+                }
+            } else {
+                cachedSize = countEntities();
+            }
+        }
+        return cachedSize;
+    }
+
+    private void refreshExpiredCount() {
+        final int oldSize = cachedSize;
+        if (countExecutor != null) {
+            // keep using the old count until the new one is ready
+            startCount(oldSize);
+            countRefreshing = true;
+        } else {
+            cachedSize = countEntities();
+            if (cachedSize != oldSize) {
+                fireSizeChanged(cachedSize);
+            }
+        }
+    }
+
+    private int countEntities() {
+        final LazyListMetrics m = metrics;
+        final long start = System.nanoTime();
+        final int count = countProvider.size();
+        countLoaded = System.nanoTime();
+        if (m != null) {
+            m.countFetched(countLoaded - start);
+        }
+        return count;
+    }
+
+    /**
+     * Starts counting the entities in the background.
+     *
+     * @param estimate the estimated size reported before the count is ready,
+     * -1 if none
+     */
+    private void startCount(final int estimate) {
+        pendingCount = new FutureTask<Integer>(this::countEntities) {
+            @Override
+            protected void done() {
+                if (estimate >= 0 && !isCancelled()) {
+                    try {
+                        final int count = get();
+                        if (count != estimate) {
+                            fireSizeChanged(count);
+                        }
+                    } catch (InterruptedException | ExecutionException ex) {
+                        // reported when the count is awaited
+                    }
+                }
+            }
+        };
+        countExecutor.execute(pendingCount);
+    }
+
+    private int awaitCount() {
+        final FutureTask<Integer> count = pendingCount;
+        pendingCount = null;
+        sizeEstimated = false;
+        countRefreshing = false;
+        try {
+            return count.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting entities", ex);
+        } catch (ExecutionException ex) {
+            throw asRuntimeException(ex.getCause());
+        }
+    }
+
+    private void correctEstimatedSize(int size) {
+        if (pendingCount != null) {
+            pendingCount.cancel(false);
+            pendingCount = null;
+        }
+        sizeEstimated = false;
+        countRefreshing = false;
+        cachedSize = size;
+        fireSizeChanged(size);
+    }
+
+    private void fireSizeChanged(int size) {
+        for (SizeChangeListener listener : sizeChangeListeners) {
+            try {
+                listener.sizeChanged(size);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(LazyList.class.getName()).log(Level.WARNING,
+                        "SizeChangeListener failed", ex);
+            }
+        }
+    }
+
+    private transient WeakHashMap<T, Integer> indexCache;
+
+    private Map<T, Integer> getIndexCache() {
+        if (indexCache == null) {
+            indexCache = new WeakHashMap<>();
+        }
+        return indexCache;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        // optimize: check the buffers first
+        Integer indexViaCache = getIndexCache().get(o);
+        if (indexViaCache != null) {
+            return indexViaCache;
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            List<T> page = pages.get(i);
+            if (page instanceof PlaceholderPage) {
+                continue;
+            }
+            int indexOf = page.indexOf(o);
+            if (indexOf != -1) {
+                indexViaCache = (pageIndex + i) * pageSize + indexOf;
+            }
+        }
+        if (indexViaCache != null) {
+            /*
+             * In some cases (selected value) components like Vaadin combobox calls this, then stuff from elsewhere with indexes and
+             * finally again this method with the same object (possibly on other page). Thus, to avoid heavy iterating,
+             * cache the location.
+             */
+            getIndexCache().put((T) o, indexViaCache);
+            return indexViaCache;
+        }
+        if (indexProvider != null) {
+            @SuppressWarnings("unchecked")
+            final T entity = (T) o;
+            final int index = indexProvider.indexOf(entity);
+            if (index >= 0) {
+                getIndexCache().put(entity, index);
+            }
+            return index;
+        }
+        // fall back to iterating, this will most likely be sloooooow....
         // If your app gets here, consider overwriting this method, and to
         // some optimization at service/db level
-        return super.indexOf(o);
+        if (metrics != null) {
+            metrics.fallbackScan();
+        }
+        // placeholders must not be matched
+        waitForPages = true;
+        try {
+            return super.indexOf(o);
+        } finally {
+            waitForPages = false;
+        }
     }
 
     @Override
@@ -278,23 +2306,199 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
             return true;
         }
         for (List<T> t : pages) {
-            if (t.contains(o)) {
+            if (!(t instanceof PlaceholderPage) && t.contains(o)) {
                 return true;
             }
         }
-        return super.contains(o);
+        if (containsProvider != null) {
+            @SuppressWarnings("unchecked")
+            final T entity = (T) o;
+            return containsProvider.contains(entity);
+        }
+        if (indexProvider != null) {
+            return indexOf(o) >= 0;
+        }
+        if (metrics != null) {
+            metrics.fallbackScan();
+        }
+        waitForPages = true;
+        try {
+            return super.contains(o);
+        } finally {
+            waitForPages = false;
+        }
     }
 
     @Override
     public List<T> subList(int fromIndex, int toIndex) {
         final int sizeOfSublist = toIndex - fromIndex;
+        if (adaptivePageSize != null) {
+            adaptivePageSize.rangeRequested(sizeOfSublist);
+            adaptPageSize(fromIndex);
+        }
         if (sizeOfSublist > maxPages * (pageSize -1)) {
             // Increase the amount of cached pages if necessary
             maxPages = sizeOfSublist/pageSize + 1;
         }
+        if (sizeOfSublist > 0 && isMultiPageLoadingSupported()) {
+            loadRange(fromIndex, toIndex);
+        }
         return new ArrayList<>(super.subList(fromIndex, toIndex));
     }
 
+    /**
+     * Loads the pages needed for the given range to the cached window. Pages
+     * already in the window are kept and only the missing ones are fetched.
+     */
+    private void loadRange(int fromIndex, int toIndex) {
+        if (prefetches != null) {
+            mergePrefetchedPages();
+        }
+        final int first = fromIndex / pageSize;
+        final int last = (Math.min(toIndex, size()) - 1) / pageSize;
+        if (last < first) {
+            return;
+        }
+        if (maxPages < last - first + 1) {
+            maxPages = last - first + 1;
+        }
+        if (pageIndex < 0 || last < pageIndex - 1
+                || first > pageIndex + pages.size()) {
+            // not adjacent to the window, start a new one
+            final List<List<T>> range = loadPages(first, last);
+            while (!pages.isEmpty()) {
+                evictPage(pages.size() - 1);
+            }
+            pages.addAll(range);
+            pageIndex = first;
+            return;
+        }
+        // refresh the overlapping pages if expired or invalidated
+        final int overlapFirst = Math.max(first, pageIndex);
+        final int overlapLast = Math.min(last, pageIndex + pages.size() - 1);
+        if (overlapFirst <= overlapLast) {
+            final List<List<T>> overlap = loadPages(overlapFirst, overlapLast);
+            for (int i = 0; i < overlap.size(); i++) {
+                pages.set(overlapFirst + i - pageIndex, overlap.get(i));
+            }
+        }
+        if (first < pageIndex) {
+            prependPages(loadPages(first, pageIndex - 1));
+        }
+        if (last >= pageIndex + pages.size()) {
+            appendPages(loadPages(pageIndex + pages.size(), last));
+        }
+    }
+
+    /**
+     * Loads the given pages. Pages that are not available in memory are
+     * fetched with as few backend calls as possible: each contiguous run of
+     * missing pages with one call if the provider supports ranges, otherwise
+     * concurrently if a parallel loading executor is set.
+     *
+     * @param first the index of the first page to load
+     * @param last the index of the last page to load
+     * @return the pages in order
+     */
+    private List<List<T>> loadPages(int first, int last) {
+        final Object queryKey = sharedPageCache != null ? getSharedCacheKey() : null;
+        final List<List<T>> range = new ArrayList<>(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            List<T> page = pageIndex >= 0 ? findPageFromCache(i) : null;
+            if (page != null && (isInvalidated(i) || isExpired(i))) {
+                if (invalidatedPages != null) {
+                    invalidatedPages.remove(i);
+                }
+                page = null;
+            }
+            if (page == null && prefetches != null && prefetches.containsKey(i)) {
+                page = loadPage(i);
+            }
+            if (page == null) {
+                page = findPageFromStores(i, queryKey);
+                if (page != null && isExpired(i)) {
+                    page = null;
+                }
+            }
+            range.add(page);
+        }
+        int missingFrom = -1;
+        for (int i = 0; i <= range.size(); i++) {
+            if (i < range.size() && range.get(i) == null) {
+                if (missingFrom < 0) {
+                    missingFrom = i;
+                }
+            } else if (missingFrom >= 0) {
+                fetchRange(first + missingFrom, first + i - 1, range, first,
+                        queryKey);
+                missingFrom = -1;
+            }
+        }
+        return range;
+    }
+
+    private void fetchRange(int firstPage, int lastPage, List<List<T>> range,
+            int rangeStart, Object queryKey) {
+        if (firstPage == lastPage) {
+            List<T> page = cachePage(firstPage, fetchPage(firstPage), queryKey);
+            range.set(firstPage - rangeStart, page);
+            return;
+        }
+        if (!isRangeLoadingSupported()) {
+            fetchPagesConcurrently(firstPage, lastPage, range, rangeStart,
+                    queryKey);
+            return;
+        }
+        final long fetchStarted = isTimingFetches() ? System.nanoTime() : 0;
+        List<T> rows = findEntities(firstPage * pageSize,
+                (lastPage - firstPage + 1) * pageSize);
+        if (isTimingFetches()) {
+            pagesFetched(System.nanoTime() - fetchStarted,
+                    lastPage - firstPage + 1, rows.size());
+        }
+        for (int i = firstPage; i <= lastPage; i++) {
+            int start = Math.min((i - firstPage) * pageSize, rows.size());
+            int end = Math.min(start + pageSize, rows.size());
+            List<T> page = cachePage(i, new ArrayList<>(rows.subList(start,
+                    end)), queryKey);
+            range.set(i - rangeStart, page);
+        }
+    }
+
+    private void fetchPagesConcurrently(int firstPage, int lastPage,
+            List<List<T>> range, int rangeStart, Object queryKey) {
+        final List<FutureTask<List<T>>> tasks = new ArrayList<>();
+        for (int i = firstPage; i <= lastPage; i++) {
+            // Boundaries for keyset pagination are resolved here, in the
+            // thread using the list
+            final int pageIndexToLoad = i;
+            final List<T> previousPage = i > rangeStart ? range.get(
+                    i - 1 - rangeStart) : findPageFromCache(i - 1);
+            final T previous = lastEntityOf(previousPage);
+            final T next = i == lastPage ? firstEntityOf(findPageFromCache(i + 1)) : null;
+            FutureTask<List<T>> task = new FutureTask<>(
+                    () -> findPageOnce(pageIndexToLoad, previous, next, queryKey));
+            tasks.add(task);
+            parallelLoadingExecutor.execute(task);
+        }
+        for (int i = firstPage; i <= lastPage; i++) {
+            List<T> page;
+            try {
+                page = tasks.get(i - firstPage).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading pages", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new IllegalStateException("Loading a page failed", ex.getCause());
+            }
+            page = cachePage(i, page, queryKey);
+            range.set(i - rangeStart, page);
+        }
+    }
+
     @Override
     public Iterator<T> iterator() {
         return new Iterator<T>() {
@@ -304,7 +2508,8 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
 
             @Override
             public boolean hasNext() {
-                return index + 1 < size;
+                // without a count the size grows while iterating
+                return index + 1 < (countProvider == null ? size() : size);
             }
 
             @Override
@@ -322,16 +2527,427 @@ public class LazyList<T> extends AbstractList<T> implements Serializable {
         };
     }
 
+    /**
+     * Returns a spliterator that pages through the backend independently of
+     * the pages cached for get(int). Thus, stream() and parallelStream() can
+     * be used e.g. for exports or calculating totals without evicting the
+     * pages a UI component is currently showing. Only one page per
+     * spliterator is held in memory at a time, regardless of the size of the
+     * list.
+     * <p>
+     * The spliterator splits on page boundaries, so with parallelStream()
+     * disjoint pages are fetched and processed concurrently. In that case the
+     * paging provider must be thread safe.
+     *
+     * @return a spliterator over the elements of the list
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        if (countProvider == null) {
+            // read until an empty page is found
+            return new PageSpliterator(0, Integer.MAX_VALUE / pageSize,
+                    Integer.MAX_VALUE);
+        }
+        final int size = size();
+        return new PageSpliterator(0, (size + pageSize - 1) / pageSize, size);
+    }
+
+    /**
+     * Fetches a page for a stream. Unlike pages of the list, it isn't counted
+     * in the metrics or the adaptive page size, and it doesn't change the
+     * size of a list without a count provider.
+     */
+    private List<T> findPageForStream(int pageIndexToLoad, T previous) {
+        final int firstRow = pageIndexToLoad * pageSize;
+        if (previous != null) {
+            List<T> page = findEntitiesAfter(firstRow, previous);
+            if (page != null) {
+                return page;
+            }
+        }
+        if (rangePagingProvider != null && countProvider == null) {
+            return rangePagingProvider.findEntities(firstRow, pageSize);
+        }
+        return findEntities(firstRow);
+    }
+
+    private class PageSpliterator implements Spliterator<T> {
+
+        private int nextPage;
+        private final int endPage;
+        private final int size;
+        private List<T> buffer;
+        private int bufferIndex;
+
+        PageSpliterator(int firstPage, int endPage, int size) {
+            this.nextPage = firstPage;
+            this.endPage = endPage;
+            this.size = size;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (buffer != null && (nextPage - 1) * pageSize + bufferIndex >= size) {
+                return false;
+            }
+            if (buffer == null || bufferIndex >= buffer.size()) {
+                if (nextPage >= endPage) {
+                    return false;
+                }
+                buffer = findPageForStream(nextPage, lastEntityOf(buffer));
+                bufferIndex = 0;
+                nextPage++;
+                if (buffer.isEmpty()) {
+                    // less entities than reported by count
+                    nextPage = endPage;
+                    return false;
+                }
+            }
+            action.accept(buffer.get(bufferIndex++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int remainingPages = endPage - nextPage;
+            if (remainingPages < 2 || countProvider == null) {
+                return null;
+            }
+            if (buffer != null && bufferIndex < buffer.size()) {
+                // split only on page boundaries, not while a page is buffered
+                return null;
+            }
+            final int mid = nextPage + remainingPages / 2;
+            PageSpliterator prefix = new PageSpliterator(nextPage, mid, size);
+            nextPage = mid;
+            buffer = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long position = buffer == null ? (long) nextPage * pageSize
+                    : (long) (nextPage - 1) * pageSize + bufferIndex;
+            return Math.max(0, Math.min((long) endPage * pageSize, size)
+                    - position);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+
     /**
      * Resets buffers used by the LazyList.
      */
     public void reset() {
-        pages.clear();
-        pageIndex = -10;
+        clearPages();
+        resetSize();
+    }
+
+    private void resetSize() {
+        if (pendingCount != null) {
+            pendingCount.cancel(false);
+            pendingCount = null;
+        }
+        sizeEstimated = false;
+        countRefreshing = false;
+        knownRowCount = 0;
+        exactRowCount = -1;
         cachedSize = null;
+    }
+
+    /**
+     * Clears all cached pages, but keeps the size of the list.
+     */
+    private void clearPages() {
+        cancelPrefetches();
+        if (asyncLoads != null) {
+            asyncLoads.clear();
+        }
+        if (pageStates != null) {
+            pageStates.clear();
+        }
+        if (invalidatedPages != null) {
+            invalidatedPages.clear();
+        }
+        if (pageStore != null) {
+            pageStore.clear();
+        }
+        clearWindow();
         if (indexCache != null) {
             indexCache.clear();
         }
     }
 
+    /**
+     * Takes the cached window of pages out of the list. Subclasses that
+     * switch between queries, like SortableLazyList between sort orders, can
+     * restore the pages later with {@link #restorePages(Object)} instead of
+     * loading them again. Other cached pages are cleared, but the size of the
+     * list is kept. The snapshot also contains the size, so that it can be
+     * restored for queries listing different rows, see
+     * {@link #restorePages(Object, boolean)}.
+     *
+     * @return an opaque snapshot of the cached pages, null if there is
+     * nothing worth restoring
+     */
+    protected Object takePages() {
+        CachedPages<T> snapshot = null;
+        if (pageIndex >= 0 && !pages.isEmpty() && !asyncLoadsPending()
+                && (invalidatedPages == null || invalidatedPages.isEmpty())) {
+            snapshot = new CachedPages<>(new ArrayList<>(pages), pageIndex,
+                    pageSize, pageStates == null ? null : new HashMap<>(pageStates),
+                    sizeEstimated || countRefreshing ? null : cachedSize,
+                    countLoaded);
+        }
+        clearPages();
+        return snapshot;
+    }
+
+    /**
+     * Replaces the cached pages with pages taken earlier with
+     * {@link #takePages()}. The size of the list is kept.
+     *
+     * @param snapshot the pages returned by takePages, null to just clear the
+     * cached pages
+     */
+    protected void restorePages(Object snapshot) {
+        restorePages(snapshot, false);
+    }
+
+    /**
+     * Replaces the cached pages with pages taken earlier with
+     * {@link #takePages()}.
+     *
+     * @param snapshot the pages returned by takePages, null to just clear the
+     * cached pages
+     * @param restoreSize true to restore the size of the list from the
+     * snapshot, the size is counted again if the snapshot doesn't contain it.
+     * False to keep the current size.
+     */
+    @SuppressWarnings("unchecked")
+    protected void restorePages(Object snapshot, boolean restoreSize) {
+        clearPages();
+        if (restoreSize) {
+            resetSize();
+            if (snapshot != null) {
+                cachedSize = ((CachedPages<T>) snapshot).size;
+                countLoaded = ((CachedPages<T>) snapshot).countLoaded;
+            }
+        }
+        if (snapshot != null && ((CachedPages<T>) snapshot).pageSize
+                == pageSize) {
+            // pages taken before the adaptive page size changed are dropped
+            CachedPages<T> cached = (CachedPages<T>) snapshot;
+            pages.addAll(cached.pages);
+            pageIndex = cached.pageIndex;
+            if (cached.pageStates != null) {
+                getPageStates().putAll(cached.pageStates);
+            }
+        }
+    }
+
+    /**
+     * Counts the entities again, ignoring the cached size and its time to
+     * live. Subclasses can use this before decisions that depend on the
+     * current size, like SortableLazyList before sorting in memory.
+     * {@link SizeChangeListener}s are notified if the size changes.
+     *
+     * @return the current size of the list
+     */
+    protected int recount() {
+        if (countProvider == null) {
+            return size();
+        }
+        if (pendingCount != null) {
+            pendingCount.cancel(false);
+            pendingCount = null;
+        }
+        sizeEstimated = false;
+        countRefreshing = false;
+        final Integer oldSize = cachedSize;
+        cachedSize = countEntities();
+        if (oldSize != null && oldSize.intValue() != cachedSize) {
+            fireSizeChanged(cachedSize);
+        }
+        return cachedSize;
+    }
+
+    private boolean asyncLoadsPending() {
+        for (List<T> page : pages) {
+            if (page instanceof PlaceholderPage) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (cacheSerialized) {
+            out.writeObject(pages);
+            out.writeObject(cachedSize);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        if (cacheSerialized) {
+            pages = (List<List<T>>) in.readObject();
+            cachedSize = (Integer) in.readObject();
+        } else {
+            pages = new ArrayList<>();
+            pageIndex = -10;
+            sizeEstimated = false;
+            knownRowCount = 0;
+            exactRowCount = -1;
+        }
+    }
+
+    private void cancelPrefetches() {
+        if (prefetches != null) {
+            for (Future<List<T>> prefetch : prefetches.values()) {
+                prefetch.cancel(false);
+            }
+            prefetches.clear();
+        }
+    }
+
+    /**
+     * The cached window of a list, see {@link #takePages()}.
+     */
+    private static final class CachedPages<T> {
+
+        private final List<List<T>> pages;
+        private final int pageIndex;
+        private final int pageSize;
+        private final Map<Integer, PageState> pageStates;
+        private final Integer size;
+        private final long countLoaded;
+
+        CachedPages(List<List<T>> pages, int pageIndex, int pageSize,
+                Map<Integer, PageState> pageStates, Integer size,
+                long countLoaded) {
+            this.pages = pages;
+            this.pageIndex = pageIndex;
+            this.pageSize = pageSize;
+            this.pageStates = pageStates;
+            this.size = size;
+            this.countLoaded = countLoaded;
+        }
+    }
+
+    /**
+     * A page whose rows are softly referenced. If the rows have been
+     * reclaimed by the garbage collector, they are loaded again when a row of
+     * the page is accessed. Searching and serializing the page only use the
+     * rows still held.
+     */
+    private final class SoftPage extends AbstractList<T> implements
+            RandomAccess, Serializable {
+
+        private static final long serialVersionUID = -1722480474917521043L;
+
+        private final int index;
+        private transient SoftReference<List<T>> rows;
+        private int size;
+
+        SoftPage(int index, List<T> rows) {
+            this.index = index;
+            this.rows = new SoftReference<>(rows);
+            this.size = rows.size();
+        }
+
+        /**
+         * @return the rows, or null if they have been reclaimed
+         */
+        private List<T> heldRows() {
+            return rows == null ? null : rows.get();
+        }
+
+        private List<T> rows() {
+            List<T> r = heldRows();
+            if (r == null) {
+                r = reloadReclaimedPage(index);
+                rows = new SoftReference<>(r);
+                if (r.size() != size) {
+                    size = r.size();
+                    reclaimedPageResized();
+                }
+            }
+            return r;
+        }
+
+        @Override
+        public T get(int indexOnPage) {
+            final List<T> r = rows();
+            if (indexOnPage >= r.size()) {
+                throw new IndexOutOfBoundsException("Row " + (index
+                        * pageSize + indexOnPage)
+                        + " was removed while the page was reclaimed");
+            }
+            return r.get(indexOnPage);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            final List<T> r = heldRows();
+            return r == null ? -1 : r.indexOf(o);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        private Object writeReplace() {
+            final List<T> r = heldRows();
+            // a reclaimed page is written without rows and reloaded on access
+            return r == null ? this : new ArrayList<>(r);
+        }
+    }
+
+    /**
+     * A page of placeholder rows, returned while the actual page is loaded
+     * asynchronously.
+     */
+    private static class PlaceholderPage<T> extends ArrayList<T> {
+
+        private static final long serialVersionUID = 6218334170548216744L;
+
+        private final transient CompletableFuture<List<T>> future;
+
+        PlaceholderPage(int rows, CompletableFuture<List<T>> future) {
+            super(rows);
+            this.future = future;
+        }
+    }
+
+    /**
+     * The time a page was loaded and its version, used to expire pages.
+     */
+    private static class PageState {
+
+        private final long loaded;
+        private final Object version;
+
+        PageState(Object version) {
+            this(System.nanoTime(), version);
+        }
+
+        PageState(long loaded, Object version) {
+            this.loaded = loaded;
+            this.version = version;
+        }
+    }
+
 }
@@ -0,0 +1,186 @@
+package org.vaadin.viritin.lazy;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the page size of a {@link org.vaadin.viritin.LazyList} based on how
+ * it is used, see
+ * {@link org.vaadin.viritin.LazyList#setAdaptivePageSize(AdaptivePageSize)}.
+ * <p>
+ * The page size starts from the size of the ranges requested by the
+ * component (the viewport) and grows with the fixed cost of a backend call,
+ * estimated from the measured latencies and row counts of the calls. A fast
+ * backend gets pages of about the viewport size, so that scrolling doesn't
+ * fetch rows that are never shown, while a slow backend gets larger pages so
+ * that the cost of a call is amortized over more rows. The suggested size is
+ * kept within the configured bounds.
+ * <p>
+ * The statistics are smoothed with exponentially weighted moving averages,
+ * so a single slow call doesn't change the page size. An instance collects
+ * statistics of a single list and is thread safe, as pages may be loaded in
+ * background threads.
+ */
+public class AdaptivePageSize implements Serializable {
+
+    private static final long serialVersionUID = 2864178260317540121L;
+
+    /**
+     * The default fixed cost of a backend call that doubles the page size
+     * compared to the viewport.
+     */
+    public static final long DEFAULT_REFERENCE_LATENCY_MILLIS = 50;
+
+    // weight of the latest sample in the moving averages
+    private static final double ALPHA = 0.2;
+    // relative change needed before a new page size is suggested
+    private static final double HYSTERESIS = 0.25;
+
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final long referenceLatencyNanos;
+
+    private double viewport = -1;
+    private int samples;
+    private double meanRows;
+    private double meanNanos;
+    private double meanRowsSquared;
+    private double meanRowsTimesNanos;
+    private int pageSize;
+
+    /**
+     * Creates a new tuner with the default reference latency.
+     *
+     * @param minPageSize the smallest page size to use
+     * @param maxPageSize the largest page size to use
+     */
+    public AdaptivePageSize(int minPageSize, int maxPageSize) {
+        this(minPageSize, maxPageSize, DEFAULT_REFERENCE_LATENCY_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new tuner.
+     *
+     * @param minPageSize the smallest page size to use
+     * @param maxPageSize the largest page size to use
+     * @param referenceLatency the fixed cost of a backend call that doubles
+     * the page size compared to the viewport
+     * @param unit the unit of referenceLatency
+     */
+    public AdaptivePageSize(int minPageSize, int maxPageSize,
+            long referenceLatency, TimeUnit unit) {
+        if (minPageSize < 1 || maxPageSize < minPageSize || referenceLatency < 1) {
+            throw new IllegalArgumentException("Invalid bounds for the page size");
+        }
+        this.minPageSize = minPageSize;
+        this.maxPageSize = maxPageSize;
+        this.referenceLatencyNanos = unit.toNanos(referenceLatency);
+    }
+
+    public int getMinPageSize() {
+        return minPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    /**
+     * Records a range of rows requested by the component, e.g. the rows
+     * visible in a Grid.
+     *
+     * @param rows the number of requested rows
+     */
+    public synchronized void rangeRequested(int rows) {
+        if (rows < 1) {
+            return;
+        }
+        viewport = viewport < 0 ? rows : average(viewport, rows);
+    }
+
+    /**
+     * Records a call to the backend.
+     *
+     * @param durationNanos the duration of the call in nanoseconds
+     * @param rows the number of rows returned by the call
+     */
+    public synchronized void fetched(long durationNanos, int rows) {
+        if (samples++ == 0) {
+            meanRows = rows;
+            meanNanos = durationNanos;
+            meanRowsSquared = (double) rows * rows;
+            meanRowsTimesNanos = (double) rows * durationNanos;
+        } else {
+            meanRows = average(meanRows, rows);
+            meanNanos = average(meanNanos, durationNanos);
+            meanRowsSquared = average(meanRowsSquared, (double) rows * rows);
+            meanRowsTimesNanos = average(meanRowsTimesNanos,
+                    (double) rows * durationNanos);
+        }
+    }
+
+    /**
+     * @return the estimated fixed cost of a backend call in nanoseconds,
+     * excluding the cost of the returned rows, or -1 if no calls have been
+     * recorded
+     */
+    public synchronized double getEstimatedCallOverheadNanos() {
+        if (samples == 0) {
+            return -1;
+        }
+        // linear regression of the duration on the row count
+        final double variance = meanRowsSquared - meanRows * meanRows;
+        if (variance < 1) {
+            // all calls returned about the same number of rows
+            return meanNanos;
+        }
+        final double nanosPerRow = Math.max(0,
+                (meanRowsTimesNanos - meanRows * meanNanos) / variance);
+        return Math.max(0, meanNanos - nanosPerRow * meanRows);
+    }
+
+    /**
+     * @return the recorded size of the requested ranges or -1 if no ranges
+     * have been recorded
+     */
+    public synchronized int getViewportSize() {
+        return (int) Math.round(viewport);
+    }
+
+    /**
+     * Returns the page size that should be used. A new size is suggested only
+     * if it differs clearly from the current one, so that the list doesn't
+     * re-split its pages on small changes in the statistics.
+     *
+     * @param currentPageSize the page size currently used
+     * @return the page size to use
+     */
+    public synchronized int getPageSize(int currentPageSize) {
+        if (pageSize == 0) {
+            pageSize = clamp(currentPageSize);
+        }
+        final double overhead = getEstimatedCallOverheadNanos();
+        if (viewport < 0 && overhead < 0) {
+            return pageSize;
+        }
+        final double base = viewport < 0 ? pageSize : viewport;
+        final double factor = overhead < 0 ? 1 : 1 + overhead / referenceLatencyNanos;
+        final int target = clamp((int) Math.min(Integer.MAX_VALUE, Math.round(
+                base * factor)));
+        if (Math.abs(target - pageSize) > pageSize * HYSTERESIS
+                || target == minPageSize || target == maxPageSize) {
+            pageSize = target;
+        }
+        return pageSize;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minPageSize, Math.min(maxPageSize, size));
+    }
+
+    private static double average(double mean, double sample) {
+        return mean + ALPHA * (sample - mean);
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.vaadin.viritin.lazy;
+
+import java.io.Serializable;
+
+/**
+ * Describes a change of an entity in the backend, published by a
+ * {@link org.vaadin.viritin.LazyList.ChangeFeed} and applied to the cached
+ * pages of a LazyList with
+ * {@link org.vaadin.viritin.LazyList#applyChange(EntityChange)}.
+ * <p>
+ * Changes that move an entity in the listing, e.g. a modification of the
+ * property the list is sorted by, should be published as a removal followed
+ * by an insertion.
+ *
+ * @param <T> the type of the changed entity
+ */
+public final class EntityChange<T> implements Serializable {
+
+    private static final long serialVersionUID = 6383946531620364127L;
+
+    public enum Type {
+        INSERTED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+    private final T entity;
+    private final int index;
+
+    private EntityChange(Type type, T entity, int index) {
+        this.type = type;
+        this.entity = entity;
+        this.index = index;
+    }
+
+    /**
+     * @param <T> the type of the entity
+     * @param entity the new entity
+     * @param index the index of the new entity in the listing
+     * @return a change describing an inserted entity
+     */
+    public static <T> EntityChange<T> inserted(T entity, int index) {
+        return new EntityChange<>(Type.INSERTED, entity, index);
+    }
+
+    /**
+     * Creates a change describing an inserted entity whose position in the
+     * listing is not known by the publisher. If the list has an
+     * {@link org.vaadin.viritin.LazyList.IndexProvider}, it is used to find
+     * the position, otherwise the list is reset.
+     *
+     * @param <T> the type of the entity
+     * @param entity the new entity
+     * @return a change describing an inserted entity
+     */
+    public static <T> EntityChange<T> inserted(T entity) {
+        return inserted(entity, -1);
+    }
+
+    /**
+     * @param <T> the type of the entity
+     * @param entity the modified entity
+     * @return a change describing a modified entity
+     */
+    public static <T> EntityChange<T> updated(T entity) {
+        return new EntityChange<>(Type.UPDATED, entity, -1);
+    }
+
+    /**
+     * @param <T> the type of the entity
+     * @param entity the removed entity
+     * @param index the index the entity had in the listing
+     * @return a change describing a removed entity
+     */
+    public static <T> EntityChange<T> removed(T entity, int index) {
+        return new EntityChange<>(Type.REMOVED, entity, index);
+    }
+
+    /**
+     * Creates a change describing a removed entity whose position in the
+     * listing is not known by the publisher. The position is looked up from
+     * the cached rows, if the entity is not found the list is reset.
+     *
+     * @param <T> the type of the entity
+     * @param entity the removed entity
+     * @return a change describing a removed entity
+     */
+    public static <T> EntityChange<T> removed(T entity) {
+        return removed(entity, -1);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return the index of the entity in the listing or -1 if not known
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + entity + (index >= 0 ? " at " + index : "");
+    }
+
+}
@@ -0,0 +1,281 @@
+package org.vaadin.viritin.lazy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A backend independent description of a filter, passed to a
+ * {@link org.vaadin.viritin.v7.FilterableSortableLazyList.FilterablePagingProvider}
+ * so that the filtering can be done in the backend query, e.g. translated to
+ * a JPA criteria or an SQL where clause.
+ * <p>
+ * A descriptor is either a condition on a single property or a junction of
+ * other descriptors. Descriptors are immutable and comparable with equals,
+ * so they can be used as cache keys.
+ */
+public final class FilterDescriptor implements Serializable {
+
+    private static final long serialVersionUID = -2713624788420356153L;
+
+    public enum Operator {
+        /**
+         * The property equals the value.
+         */
+        EQUAL,
+        GREATER,
+        LESS,
+        GREATER_OR_EQUAL,
+        LESS_OR_EQUAL,
+        /**
+         * The string representation of the property contains the value.
+         */
+        CONTAINS,
+        /**
+         * The string representation of the property starts with the value.
+         */
+        STARTS_WITH,
+        /**
+         * The property matches the value, a pattern where % matches any
+         * characters and _ a single character.
+         */
+        LIKE,
+        /**
+         * The property is between the two values, inclusive.
+         */
+        BETWEEN,
+        IS_NULL,
+        /**
+         * None of the filters matches.
+         */
+        NOT,
+        /**
+         * All filters match.
+         */
+        AND,
+        /**
+         * At least one of the filters matches.
+         */
+        OR
+    }
+
+    private final Operator operator;
+    private final Object propertyId;
+    private final List<Object> values;
+    private final boolean ignoreCase;
+    private final List<FilterDescriptor> filters;
+
+    private FilterDescriptor(Operator operator, Object propertyId,
+            List<Object> values, boolean ignoreCase,
+            List<FilterDescriptor> filters) {
+        this.operator = operator;
+        this.propertyId = propertyId;
+        this.values = values;
+        this.ignoreCase = ignoreCase;
+        this.filters = filters;
+    }
+
+    /**
+     * Creates a condition comparing a property to a value.
+     *
+     * @param operator the operator, one of EQUAL, GREATER, LESS,
+     * GREATER_OR_EQUAL or LESS_OR_EQUAL
+     * @param propertyId the compared property
+     * @param value the value the property is compared to
+     * @return the condition
+     */
+    public static FilterDescriptor compare(Operator operator, Object propertyId,
+            Object value) {
+        switch (operator) {
+            case EQUAL:
+            case GREATER:
+            case LESS:
+            case GREATER_OR_EQUAL:
+            case LESS_OR_EQUAL:
+                return condition(operator, propertyId, false, value);
+            default:
+                throw new IllegalArgumentException(operator
+                        + " is not a comparison");
+        }
+    }
+
+    /**
+     * @param propertyId the filtered property
+     * @param value the string the property should contain
+     * @param ignoreCase true if the case should be ignored
+     * @return a condition matching properties containing the value
+     */
+    public static FilterDescriptor contains(Object propertyId, String value,
+            boolean ignoreCase) {
+        return condition(Operator.CONTAINS, propertyId, ignoreCase, value);
+    }
+
+    /**
+     * @param propertyId the filtered property
+     * @param value the string the property should start with
+     * @param ignoreCase true if the case should be ignored
+     * @return a condition matching properties starting with the value
+     */
+    public static FilterDescriptor startsWith(Object propertyId, String value,
+            boolean ignoreCase) {
+        return condition(Operator.STARTS_WITH, propertyId, ignoreCase, value);
+    }
+
+    /**
+     * @param propertyId the filtered property
+     * @param pattern the pattern, % matches any characters and _ a single
+     * character
+     * @param ignoreCase true if the case should be ignored
+     * @return a condition matching properties matching the pattern
+     */
+    public static FilterDescriptor like(Object propertyId, String pattern,
+            boolean ignoreCase) {
+        return condition(Operator.LIKE, propertyId, ignoreCase, pattern);
+    }
+
+    /**
+     * @param propertyId the filtered property
+     * @param startValue the smallest accepted value
+     * @param endValue the largest accepted value
+     * @return a condition matching properties between the values
+     */
+    public static FilterDescriptor between(Object propertyId,
+            Object startValue, Object endValue) {
+        return condition(Operator.BETWEEN, propertyId, false, startValue,
+                endValue);
+    }
+
+    /**
+     * @param propertyId the filtered property
+     * @return a condition matching null properties
+     */
+    public static FilterDescriptor isNull(Object propertyId) {
+        return condition(Operator.IS_NULL, propertyId, false);
+    }
+
+    /**
+     * @param filter the negated filter
+     * @return a filter matching when the given filter doesn't
+     */
+    public static FilterDescriptor not(FilterDescriptor filter) {
+        return junction(Operator.NOT, Collections.singletonList(filter));
+    }
+
+    /**
+     * @param filters the filters
+     * @return a filter matching when all of the filters match, the only
+     * filter if just one is given
+     */
+    public static FilterDescriptor and(Collection<FilterDescriptor> filters) {
+        return filters.size() == 1 ? filters.iterator().next()
+                : junction(Operator.AND, filters);
+    }
+
+    /**
+     * @param filters the filters
+     * @return a filter matching when any of the filters matches, the only
+     * filter if just one is given
+     */
+    public static FilterDescriptor or(Collection<FilterDescriptor> filters) {
+        return filters.size() == 1 ? filters.iterator().next()
+                : junction(Operator.OR, filters);
+    }
+
+    private static FilterDescriptor condition(Operator operator,
+            Object propertyId, boolean ignoreCase, Object... values) {
+        if (propertyId == null) {
+            throw new IllegalArgumentException("The property can't be null");
+        }
+        return new FilterDescriptor(operator, propertyId, Collections.
+                unmodifiableList(Arrays.asList(values)), ignoreCase,
+                Collections.<FilterDescriptor>emptyList());
+    }
+
+    private static FilterDescriptor junction(Operator operator,
+            Collection<FilterDescriptor> filters) {
+        if (filters.isEmpty() || filters.contains(null)) {
+            throw new IllegalArgumentException(
+                    "A junction needs non-null filters");
+        }
+        return new FilterDescriptor(operator, null, Collections.emptyList(),
+                false, Collections.unmodifiableList(new ArrayList<>(filters)));
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return the filtered property or null for junctions
+     */
+    public Object getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * @return the first value of a condition, e.g. the compared value or the
+     * start value of BETWEEN
+     */
+    public Object getValue() {
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return the values of a condition, two for BETWEEN, none for IS_NULL
+     * and junctions and one for the others
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * @return true if this is a NOT, AND or OR of other filters
+     */
+    public boolean isJunction() {
+        return propertyId == null;
+    }
+
+    /**
+     * @return the filters of a junction, an empty list for conditions
+     */
+    public List<FilterDescriptor> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FilterDescriptor)) {
+            return false;
+        }
+        final FilterDescriptor other = (FilterDescriptor) obj;
+        return operator == other.operator && ignoreCase == other.ignoreCase
+                && Objects.equals(propertyId, other.propertyId)
+                && values.equals(other.values) && filters.equals(other.filters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operator, propertyId, values, ignoreCase, filters);
+    }
+
+    @Override
+    public String toString() {
+        if (isJunction()) {
+            return operator + filters.toString();
+        }
+        return propertyId + " " + operator + (values.isEmpty() ? ""
+                : " " + values) + (ignoreCase ? " ignoring case" : "");
+    }
+
+}
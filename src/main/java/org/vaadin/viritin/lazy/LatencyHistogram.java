@@ -0,0 +1,98 @@
+package org.vaadin.viritin.lazy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe histogram of durations with exponentially growing buckets.
+ * Bucket n holds durations shorter than 2^n microseconds, so percentiles are
+ * reported with the precision of a factor of two, which is plenty for
+ * e.g. finding out if a backend call takes 5 or 500 milliseconds.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(
+                micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean of recorded durations in milliseconds
+     */
+    public double getMeanMillis() {
+        long c = count.get();
+        return c == 0 ? 0 : toMillis(totalNanos.get()) / c;
+    }
+
+    /**
+     * @return the longest recorded duration in milliseconds
+     */
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    /**
+     * Returns an estimate of the given percentile. The value is the upper
+     * bound of the bucket in which the percentile falls.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated percentile in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(c * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return Math.min((1L << i) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+}
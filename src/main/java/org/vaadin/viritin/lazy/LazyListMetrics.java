@@ -0,0 +1,80 @@
+package org.vaadin.viritin.lazy;
+
+/**
+ * Receives statistics about the cache usage and backend calls of a
+ * {@link org.vaadin.viritin.LazyList}, see
+ * {@link org.vaadin.viritin.LazyList#setMetrics(LazyListMetrics)}. All
+ * methods have empty default implementations, so implementations can pick
+ * the events they are interested in.
+ * <p>
+ * Pages may be loaded in background threads (prefetching, parallel loading,
+ * parallel streams), so implementations must be thread safe. The same
+ * instance can be shared by several lists to collect aggregated statistics.
+ *
+ * @see LazyListStatistics
+ */
+public interface LazyListMetrics {
+
+    /**
+     * A no-op implementation, the default for all lists. When it is used, the
+     * list skips all metrics related work, including timing backend calls.
+     */
+    public static final LazyListMetrics NONE = new LazyListMetrics() {
+    };
+
+    /**
+     * Called when a requested row was found from the pages cached by the
+     * list.
+     */
+    public default void cacheHit() {
+    }
+
+    /**
+     * Called when a requested row was not found from the pages cached by the
+     * list.
+     */
+    public default void cacheMiss() {
+    }
+
+    /**
+     * Called after entities have been fetched from the paging provider.
+     *
+     * @param durationNanos the duration of the backend call in nanoseconds
+     * @param pageCount the number of pages loaded with the call
+     * @param rowCount the number of rows returned by the call
+     */
+    public default void pagesFetched(long durationNanos, int pageCount,
+            int rowCount) {
+    }
+
+    /**
+     * Called when pages are dropped from the cached window of the list.
+     *
+     * @param pageCount the number of evicted pages
+     */
+    public default void pagesEvicted(int pageCount) {
+    }
+
+    /**
+     * Called when the whole cached window is discarded because the requested
+     * row was too far from the currently cached pages.
+     */
+    public default void cacheReset() {
+    }
+
+    /**
+     * Called after the count provider has been queried.
+     *
+     * @param durationNanos the duration of the backend call in nanoseconds
+     */
+    public default void countFetched(long durationNanos) {
+    }
+
+    /**
+     * Called when indexOf or contains falls back to iterating through the
+     * whole list.
+     */
+    public default void fallbackScan() {
+    }
+
+}
@@ -0,0 +1,224 @@
+package org.vaadin.viritin.lazy;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link LazyListMetrics} implementation that collects counters and latency
+ * histograms, and can expose them via JMX. Typically one instance is shared
+ * by all lists of the same kind (e.g. the lists of the order history table in
+ * all sessions), so that page size and maxPages settings can be tuned based
+ * on real usage.
+ * <pre>
+ * static final LazyListStatistics ORDER_STATS = new LazyListStatistics()
+ *         .register("orders");
+ * ...
+ * lazyList.setMetrics(ORDER_STATS);
+ * </pre>
+ */
+public class LazyListStatistics implements LazyListMetrics,
+        LazyListStatisticsMBean {
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong rowsFetched = new AtomicLong();
+    private final AtomicLong pagesEvicted = new AtomicLong();
+    private final AtomicLong cacheResets = new AtomicLong();
+    private final AtomicLong fallbackScans = new AtomicLong();
+    private final LatencyHistogram fetchTimes = new LatencyHistogram();
+    private final LatencyHistogram countTimes = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    @Override
+    public void cacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void cacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void pagesFetched(long durationNanos, int pageCount, int rowCount) {
+        fetchTimes.record(durationNanos);
+        pagesFetched.addAndGet(pageCount);
+        rowsFetched.addAndGet(rowCount);
+    }
+
+    @Override
+    public void pagesEvicted(int pageCount) {
+        pagesEvicted.addAndGet(pageCount);
+    }
+
+    @Override
+    public void cacheReset() {
+        cacheResets.incrementAndGet();
+    }
+
+    @Override
+    public void countFetched(long durationNanos) {
+        countTimes.record(durationNanos);
+    }
+
+    @Override
+    public void fallbackScan() {
+        fallbackScans.incrementAndGet();
+    }
+
+    /**
+     * Registers this instance to the platform MBean server with object name
+     * "org.vaadin.viritin:type=LazyList,name=[name]".
+     *
+     * @param name the name used in the object name
+     * @return this instance, for chaining
+     * @throws IllegalStateException if the registration fails
+     */
+    public synchronized LazyListStatistics register(String name) {
+        try {
+            ObjectName on = new ObjectName("org.vaadin.viritin:type=LazyList,name="
+                    + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+            objectName = on;
+        } catch (JMException ex) {
+            throw new IllegalStateException("Registering MBean failed", ex);
+        }
+        return this;
+    }
+
+    /**
+     * Removes this instance from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException ex) {
+                throw new IllegalStateException("Unregistering MBean failed", ex);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.get();
+        long lookups = hits + cacheMisses.get();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getFetchCalls() {
+        return fetchTimes.getCount();
+    }
+
+    @Override
+    public long getPagesFetched() {
+        return pagesFetched.get();
+    }
+
+    @Override
+    public long getRowsFetched() {
+        return rowsFetched.get();
+    }
+
+    @Override
+    public long getPagesEvicted() {
+        return pagesEvicted.get();
+    }
+
+    @Override
+    public long getCacheResets() {
+        return cacheResets.get();
+    }
+
+    @Override
+    public long getFallbackScans() {
+        return fallbackScans.get();
+    }
+
+    @Override
+    public double getFetchTimeMean() {
+        return fetchTimes.getMeanMillis();
+    }
+
+    @Override
+    public double getFetchTime50thPercentile() {
+        return fetchTimes.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getFetchTime95thPercentile() {
+        return fetchTimes.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getFetchTime99thPercentile() {
+        return fetchTimes.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getFetchTimeMax() {
+        return fetchTimes.getMaxMillis();
+    }
+
+    @Override
+    public long getCountCalls() {
+        return countTimes.getCount();
+    }
+
+    @Override
+    public double getCountTimeMean() {
+        return countTimes.getMeanMillis();
+    }
+
+    @Override
+    public double getCountTime95thPercentile() {
+        return countTimes.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getCountTimeMax() {
+        return countTimes.getMaxMillis();
+    }
+
+    public LatencyHistogram getFetchTimes() {
+        return fetchTimes;
+    }
+
+    public LatencyHistogram getCountTimes() {
+        return countTimes;
+    }
+
+    @Override
+    public void resetStatistics() {
+        cacheHits.set(0);
+        cacheMisses.set(0);
+        pagesFetched.set(0);
+        rowsFetched.set(0);
+        pagesEvicted.set(0);
+        cacheResets.set(0);
+        fallbackScans.set(0);
+        fetchTimes.reset();
+        countTimes.reset();
+    }
+
+}
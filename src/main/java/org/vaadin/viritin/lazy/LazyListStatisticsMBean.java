@@ -0,0 +1,47 @@
+package org.vaadin.viritin.lazy;
+
+/**
+ * The JMX management interface of {@link LazyListStatistics}. Durations are
+ * reported in milliseconds.
+ */
+public interface LazyListStatisticsMBean {
+
+    public long getCacheHits();
+
+    public long getCacheMisses();
+
+    public double getCacheHitRate();
+
+    public long getFetchCalls();
+
+    public long getPagesFetched();
+
+    public long getRowsFetched();
+
+    public long getPagesEvicted();
+
+    public long getCacheResets();
+
+    public long getFallbackScans();
+
+    public double getFetchTimeMean();
+
+    public double getFetchTime50thPercentile();
+
+    public double getFetchTime95thPercentile();
+
+    public double getFetchTime99thPercentile();
+
+    public double getFetchTimeMax();
+
+    public long getCountCalls();
+
+    public double getCountTimeMean();
+
+    public double getCountTime95thPercentile();
+
+    public double getCountTimeMax();
+
+    public void resetStatistics();
+
+}
@@ -0,0 +1,186 @@
+package org.vaadin.viritin.lazy;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.vaadin.viritin.LazyList;
+
+/**
+ * A {@link LazyList.PageStore} that keeps pages in least recently used order
+ * and evicts the oldest ones when the store grows over its limits. The size of
+ * the store can be limited by the number of pages and/or by the estimated
+ * memory usage of the cached entities.
+ * <p>
+ * The store also counts hits, misses and evictions, so that its
+ * effectiveness can be monitored.
+ * <p>
+ * The cached pages are not serialized, so a store replicated with the
+ * session is empty after deserialization and fills up again on demand.
+ *
+ * @param <T> The type of the objects in the list
+ */
+public class LruPageStore<T> implements LazyList.PageStore<T> {
+
+    private static final long serialVersionUID = -3411528129512245217L;
+
+    private transient LinkedHashMap<Integer, List<T>> pages = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    private final int maxPages;
+    private final long maxBytes;
+    private final int estimatedEntitySize;
+
+    private transient long estimatedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a new store that holds at most the given number of pages.
+     *
+     * @param maxPages the maximum number of pages held in the store
+     */
+    public LruPageStore(int maxPages) {
+        this(maxPages, Long.MAX_VALUE, 0);
+    }
+
+    /**
+     * Creates a new store that holds pages until their estimated size exceeds
+     * the given limit.
+     *
+     * @param maxBytes the maximum estimated memory usage of cached entities
+     * @param estimatedEntitySize the estimated memory usage of one entity in
+     * bytes
+     */
+    public LruPageStore(long maxBytes, int estimatedEntitySize) {
+        this(Integer.MAX_VALUE, maxBytes, estimatedEntitySize);
+    }
+
+    /**
+     * Creates a new store limited both by the number of pages and by the
+     * estimated memory usage of cached entities.
+     *
+     * @param maxPages the maximum number of pages held in the store
+     * @param maxBytes the maximum estimated memory usage of cached entities
+     * @param estimatedEntitySize the estimated memory usage of one entity in
+     * bytes
+     */
+    public LruPageStore(int maxPages, long maxBytes, int estimatedEntitySize) {
+        if (maxPages < 1 || maxBytes < 1 || estimatedEntitySize < 0) {
+            throw new IllegalArgumentException("Invalid limits for the store");
+        }
+        this.maxPages = maxPages;
+        this.maxBytes = maxBytes;
+        this.estimatedEntitySize = estimatedEntitySize;
+    }
+
+    @Override
+    public synchronized List<T> get(int pageIndex) {
+        List<T> page = pages.get(pageIndex);
+        if (page == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized boolean contains(int pageIndex) {
+        // doesn't change the order of the pages or count as a hit or miss
+        return pages.containsKey(pageIndex);
+    }
+
+    @Override
+    public synchronized void put(int pageIndex, List<T> page) {
+        List<T> old = pages.put(pageIndex, page);
+        if (old != null) {
+            estimatedBytes -= estimateSize(old);
+        }
+        estimatedBytes += estimateSize(page);
+        evict();
+    }
+
+    @Override
+    public synchronized void remove(int pageIndex) {
+        List<T> old = pages.remove(pageIndex);
+        if (old != null) {
+            estimatedBytes -= estimateSize(old);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        pages.clear();
+        estimatedBytes = 0;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        pages = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, List<T>>> it = pages.entrySet().iterator();
+        // always keep the most recently added page
+        while (pages.size() > 1 && (pages.size() > maxPages || estimatedBytes > maxBytes)) {
+            List<T> eldest = it.next().getValue();
+            it.remove();
+            estimatedBytes -= estimateSize(eldest);
+            evictions++;
+        }
+    }
+
+    private long estimateSize(List<T> page) {
+        return (long) page.size() * estimatedEntitySize;
+    }
+
+    /**
+     * @return the number of pages currently in the store
+     */
+    public synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @return the estimated memory usage of the cached entities in bytes
+     */
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the ratio of hits to all lookups, 0 if there has been no
+     * lookups yet
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.vaadin.viritin.lazy;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory methods for executors suitable for loading pages of LazyList in the
+ * background, see {@link org.vaadin.viritin.LazyList#setPrefetchExecutor} and
+ * {@link org.vaadin.viritin.LazyList#setParallelLoadingExecutor}.
+ * <p>
+ * Loading pages is typically blocking IO, so the executors are best shared by
+ * the whole application instead of creating one per list.
+ */
+public final class PageLoadingExecutors {
+
+    private PageLoadingExecutors() {
+    }
+
+    /**
+     * Creates an executor that runs each task in its own virtual thread, if
+     * the JVM supports them (Java 21+). On older JVMs a cached pool of daemon
+     * threads is used instead.
+     *
+     * @return a new executor for loading pages
+     */
+    public static ExecutorService newExecutor() {
+        try {
+            Method method = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            Logger.getLogger(PageLoadingExecutors.class.getName()).log(
+                    Level.FINE, "Virtual threads not available, using a thread pool");
+            return newThreadPoolExecutor();
+        }
+    }
+
+    /**
+     * Creates an executor backed by a cached pool of daemon threads.
+     *
+     * @return a new executor for loading pages
+     */
+    public static ExecutorService newThreadPoolExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lazylist-loader-" + counter.
+                        incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,323 @@
+package org.vaadin.viritin.lazy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An application scoped cache for pages loaded by LazyList instances. Pages
+ * are identified by a query key, supplied by the paging provider via
+ * {@link org.vaadin.viritin.LazyList.QueryKeyProvider}, and the index of the
+ * page. If several sessions list the same data, e.g. a product catalog, only
+ * the first one needs to hit the backend.
+ * <p>
+ * Entries expire after the configured time to live and the least recently used
+ * ones are evicted if the cache grows over its maximum size. The cache is
+ * split into independently locked segments, so it can be used concurrently by
+ * all sessions of the application. The maximum size is divided among the
+ * segments and pages are evicted per segment, so the cache never holds more
+ * than the maximum number of pages, but the least recently used order is
+ * only approximate and a page may be evicted before the cache is full.
+ * Typically a single instance is created per application, e.g. as a static
+ * field or a singleton bean, and set to the lists with
+ * {@link org.vaadin.viritin.LazyList#setSharedPageCache}.
+ * <p>
+ * Note, that the cached entities are shared by all sessions, so this is only
+ * suitable for read-mostly reference data where the entities are not modified
+ * in the UI. LazyList.reset() doesn't clear the shared cache, use
+ * {@link #invalidate(Object)} or {@link #invalidateAll()} when the data
+ * changes.
+ * <p>
+ * Pages missing from the cache are loaded with {@link #load}, so that
+ * concurrent misses on the same page, e.g. right after the cache has been
+ * invalidated, wait for a single backend call instead of all hitting the
+ * backend.
+ */
+public class SharedPageCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long timeToLiveNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong coalescedLoads = new AtomicLong();
+
+    private final ConcurrentHashMap<PageKey, CompletableFuture<List<?>>> loads
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new shared page cache.
+     *
+     * @param maxPages the maximum number of pages in the cache
+     * @param timeToLive the time after which cached pages expire
+     * @param unit the unit of timeToLive
+     */
+    public SharedPageCache(int maxPages, long timeToLive, TimeUnit unit) {
+        if (maxPages < 1 || timeToLive < 1) {
+            throw new IllegalArgumentException("Invalid limits for the cache");
+        }
+        // small caches use fewer segments, so that each holds at least one
+        // page and the segments together hold exactly maxPages
+        segments = new Segment[Math.min(SEGMENTS, maxPages)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(maxPages / segments.length
+                    + (i < maxPages % segments.length ? 1 : 0));
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * @param <T> the type of the entities on the page
+     * @param queryKey the key identifying the query
+     * @param pageIndex the index of the page
+     * @return the cached page or null if not found or expired
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Object queryKey, int pageIndex) {
+        PageKey key = new PageKey(queryKey, pageIndex);
+        List<?> page = segmentFor(key).get(key, currentTime());
+        if (page == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return (List<T>) page;
+    }
+
+    /**
+     * Stores a page to the cache.
+     *
+     * @param queryKey the key identifying the query
+     * @param pageIndex the index of the page
+     * @param page the entities on the page
+     */
+    public void put(Object queryKey, int pageIndex, List<?> page) {
+        PageKey key = new PageKey(queryKey, pageIndex);
+        segmentFor(key).put(key, page, currentTime() + timeToLiveNanos);
+    }
+
+    /**
+     * Loads a page missing from the cache and stores it to the cache. If the
+     * same page is already being loaded by another thread, waits for that
+     * load instead of calling the loader. Loads of different pages don't
+     * block each other.
+     *
+     * @param <T> the type of the entities on the page
+     * @param queryKey the key identifying the query
+     * @param pageIndex the index of the page
+     * @param loader loads the page from the backend
+     * @return the loaded page
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> load(Object queryKey, int pageIndex,
+            Supplier<List<T>> loader) {
+        final PageKey key = new PageKey(queryKey, pageIndex);
+        final CompletableFuture<List<?>> load = new CompletableFuture<>();
+        final CompletableFuture<List<?>> inFlight = loads.putIfAbsent(key,
+                load);
+        if (inFlight != null) {
+            coalescedLoads.incrementAndGet();
+            try {
+                return (List<T>) inFlight.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+        try {
+            // the page may have been stored by a load that just completed
+            List<T> page = (List<T>) segmentFor(key).get(key, currentTime());
+            if (page == null) {
+                page = loader.get();
+                put(queryKey, pageIndex, page);
+            }
+            load.complete(page);
+            return page;
+        } catch (RuntimeException | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Removes all pages of the given query from the cache.
+     *
+     * @param queryKey the key identifying the query
+     */
+    public void invalidate(Object queryKey) {
+        for (Segment segment : segments) {
+            segment.removeQuery(queryKey);
+        }
+    }
+
+    /**
+     * Removes a single page of the given query from the cache.
+     *
+     * @param queryKey the key identifying the query
+     * @param pageIndex the index of the page
+     */
+    public void invalidate(Object queryKey, int pageIndex) {
+        PageKey key = new PageKey(queryKey, pageIndex);
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * Removes all pages from the cache.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return the number of pages currently in the cache, including expired
+     * pages that have not yet been cleaned up
+     */
+    public int getPageCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of loads that waited for the same page being
+     * loaded by another thread instead of calling the backend
+     */
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.get();
+    }
+
+    /**
+     * @return the current time in nanoseconds, used to expire entries
+     */
+    protected long currentTime() {
+        return System.nanoTime();
+    }
+
+    private Segment segmentFor(PageKey key) {
+        return segments[(key.hashCode() & 0x7fffffff) % segments.length];
+    }
+
+    private static final class PageKey {
+
+        private final Object queryKey;
+        private final int pageIndex;
+
+        PageKey(Object queryKey, int pageIndex) {
+            this.queryKey = queryKey;
+            this.pageIndex = pageIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(queryKey) + pageIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) obj;
+            return pageIndex == other.pageIndex && Objects.equals(queryKey,
+                    other.queryKey);
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<?> page;
+        private final long expires;
+
+        Entry(List<?> page, long expires) {
+            this.page = page;
+            this.expires = expires;
+        }
+    }
+
+    private final class Segment {
+
+        private final LinkedHashMap<PageKey, Entry> entries
+                = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxPages;
+
+        Segment(int maxPages) {
+            this.maxPages = maxPages;
+        }
+
+        synchronized List<?> get(PageKey key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expires - now < 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.page;
+        }
+
+        synchronized void put(PageKey key, List<?> page, long expires) {
+            entries.put(key, new Entry(page, expires));
+            Iterator<PageKey> it = entries.keySet().iterator();
+            while (entries.size() > maxPages) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void remove(PageKey key) {
+            entries.remove(key);
+        }
+
+        synchronized void removeQuery(Object queryKey) {
+            Iterator<Map.Entry<PageKey, Entry>> it = entries.entrySet().
+                    iterator();
+            while (it.hasNext()) {
+                if (Objects.equals(it.next().getKey().queryKey, queryKey)) {
+                    it.remove();
+                }
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+}
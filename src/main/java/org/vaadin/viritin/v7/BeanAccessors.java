@@ -0,0 +1,315 @@
+package org.vaadin.viritin.v7;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A registry of compiled property accessors of bean classes. The getters and
+ * setters of a property path, like "address.street", are resolved once per
+ * bean class and compiled to lambdas with {@link LambdaMetafactory}, so
+ * reading a property costs about the same as calling the getters directly.
+ * Methods that can't be compiled, e.g. of non-public classes, are called via
+ * method handles.
+ * <p>
+ * Only paths of simple properties are supported. For indexed or mapped
+ * properties, like "numbers[2]", and for properties that can't be found from
+ * the declared types, no accessor is returned and the callers fall back to
+ * commons-beanutils.
+ */
+public final class BeanAccessors {
+
+    private static final PropertyAccessor UNSUPPORTED = new PropertyAccessor(
+            null, null, null, null);
+
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS
+            = new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+        @Override
+        protected ConcurrentMap<String, PropertyAccessor> computeValue(
+                Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private BeanAccessors() {
+    }
+
+    /**
+     * Returns the compiled accessor of a property path of a bean class.
+     *
+     * @param beanClass the class of the beans
+     * @param propertyPath the name of the property, nested properties
+     * separated with dots
+     * @return the accessor or null if the path is not supported, see the
+     * class description
+     */
+    public static PropertyAccessor get(Class<?> beanClass, String propertyPath) {
+        PropertyAccessor accessor = ACCESSORS.get(beanClass).get(propertyPath);
+        if (accessor == null) {
+            accessor = resolve(beanClass, propertyPath);
+            ACCESSORS.get(beanClass).putIfAbsent(propertyPath, accessor);
+        }
+        return accessor == UNSUPPORTED ? null : accessor;
+    }
+
+    private static PropertyAccessor resolve(Class<?> beanClass, String path) {
+        if (path.isEmpty() || path.indexOf('[') >= 0 || path.indexOf('(') >= 0) {
+            return UNSUPPORTED;
+        }
+        final String[] names = path.split("\\.");
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Function<Object, Object>[] getters = new Function[names.length];
+        Class<?> type = beanClass;
+        Method setter = null;
+        for (int i = 0; i < names.length; i++) {
+            final PropertyDescriptor pd = findProperty(type, names[i]);
+            Method getter = pd == null ? null : pd.getReadMethod();
+            if (getter == null) {
+                getter = findGetter(type, names[i]);
+            }
+            if (getter == null) {
+                return UNSUPPORTED;
+            }
+            getters[i] = compileGetter(getter);
+            if (getters[i] == null) {
+                return UNSUPPORTED;
+            }
+            if (i == names.length - 1 && pd != null) {
+                setter = pd.getWriteMethod();
+            }
+            type = getter.getReturnType();
+        }
+        return new PropertyAccessor(path, getters,
+                setter == null ? null : compileSetter(setter), type);
+    }
+
+    static PropertyDescriptor findProperty(Class<?> type, String name) {
+        try {
+            for (PropertyDescriptor pd : Introspector.getBeanInfo(type).
+                    getPropertyDescriptors()) {
+                if (pd.getName().equals(name)) {
+                    return pd;
+                }
+            }
+        } catch (IntrospectionException ex) {
+            Logger.getLogger(BeanAccessors.class.getName()).log(Level.FINE,
+                    "Introspection failed for " + type, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Finds getters not reported by the Introspector, e.g. default methods.
+     */
+    static Method findGetter(Class<?> type, String name) {
+        final String capitalized = Character.toUpperCase(name.charAt(0))
+                + name.substring(1);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                final Method method = type.getMethod(prefix + capitalized);
+                if (method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ex) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileGetter(Method getter) {
+        final MethodHandle handle = unreflect(getter);
+        if (handle == null) {
+            return null;
+        }
+        if (isPublic(getter) && isVisible(getter)) {
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                return (Function<Object, Object>) LambdaMetafactory.metafactory(
+                        lookup, "apply", MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type().wrap()).getTarget().invokeExact();
+            } catch (Throwable ex) {
+                logNotCompiled(getter, ex);
+            }
+        }
+        final MethodHandle generic = handle.asType(MethodType.methodType(
+                Object.class, Object.class));
+        return bean -> {
+            try {
+                return generic.invokeExact(bean);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileSetter(Method setter) {
+        final MethodHandle handle = unreflect(setter);
+        if (handle == null) {
+            return null;
+        }
+        if (isPublic(setter) && isVisible(setter)) {
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(
+                        lookup, "accept", MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class,
+                                Object.class), handle,
+                        handle.type().wrap().changeReturnType(void.class)).
+                        getTarget().invokeExact();
+            } catch (Throwable ex) {
+                logNotCompiled(setter, ex);
+            }
+        }
+        final MethodHandle generic = handle.asType(MethodType.methodType(
+                void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                generic.invokeExact(bean, value);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        };
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            if (!isPublic(method)) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            logNotCompiled(method, ex);
+            return null;
+        }
+    }
+
+    private static boolean isPublic(Method method) {
+        return Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * Lambdas are defined in the class loader of this class, so the types
+     * they refer to must be visible from it.
+     */
+    private static boolean isVisible(Method method) {
+        final ClassLoader loader = BeanAccessors.class.getClassLoader();
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        final Class<?>[] types = new Class<?>[parameterTypes.length + 2];
+        System.arraycopy(parameterTypes, 0, types, 0, parameterTypes.length);
+        types[parameterTypes.length] = method.getDeclaringClass();
+        types[parameterTypes.length + 1] = method.getReturnType();
+        for (Class<?> type : types) {
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (type.isPrimitive()) {
+                continue;
+            }
+            try {
+                if (Class.forName(type.getName(), false, loader) != type) {
+                    return false;
+                }
+            } catch (ClassNotFoundException | LinkageError ex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void logNotCompiled(Method method, Throwable ex) {
+        Logger.getLogger(BeanAccessors.class.getName()).log(Level.FINE,
+                "Could not compile an accessor for " + method, ex);
+    }
+
+    /**
+     * Reads and writes a property path of beans of a single class.
+     */
+    public static final class PropertyAccessor {
+
+        private final String path;
+        private final Function<Object, Object>[] getters;
+        private final BiConsumer<Object, Object> setter;
+        private final Class<?> type;
+
+        PropertyAccessor(String path, Function<Object, Object>[] getters,
+                BiConsumer<Object, Object> setter, Class<?> type) {
+            this.path = path;
+            this.getters = getters;
+            this.setter = setter;
+            this.type = type;
+        }
+
+        /**
+         * @param bean the bean whose property is read
+         * @return the value of the property, null if a property on the path
+         * is null
+         */
+        public Object getValue(Object bean) {
+            Object value = bean;
+            for (int i = 0; i < getters.length && value != null; i++) {
+                value = getters[i].apply(value);
+            }
+            return value;
+        }
+
+        /**
+         * @param bean the bean whose property is written
+         * @param value the new value of the property
+         * @throws UnsupportedOperationException if the property has no setter
+         * @throws IllegalArgumentException if a property on the path is null
+         */
+        public void setValue(Object bean, Object value) {
+            if (setter == null) {
+                throw new UnsupportedOperationException("Property " + path
+                        + " is read only");
+            }
+            Object owner = bean;
+            for (int i = 0; i < getters.length - 1; i++) {
+                owner = getters[i].apply(owner);
+                if (owner == null) {
+                    throw new IllegalArgumentException("Null property on path "
+                            + path);
+                }
+            }
+            setter.accept(owner, value);
+        }
+
+        /**
+         * @return the declared type of the property
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        public boolean isReadOnly() {
+            return setter == null;
+        }
+
+        @Override
+        public String toString() {
+            return path + " (" + type.getName() + ")";
+        }
+    }
+
+}
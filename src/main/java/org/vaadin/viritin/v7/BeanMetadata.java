@@ -0,0 +1,229 @@
+package org.vaadin.viritin.v7;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Property metadata of a bean class: the types of property paths and whether
+ * they can be written or sorted. The metadata of a path is resolved once and
+ * shared by all containers and sessions. It is held in a {@link ClassValue},
+ * so it doesn't keep the bean class from being unloaded.
+ * <p>
+ * Paths can contain nested properties, like "address.street", and indexed
+ * or mapped properties, like "numbers[2]" or "values(key)". The type of an
+ * indexed or mapped property is detected from the generic type of the
+ * getter, e.g. the element type of a List or the value type of a Map.
+ */
+public final class BeanMetadata {
+
+    private static final PropertyMetadata UNKNOWN = new PropertyMetadata(
+            Object.class, false, false);
+
+    private static final ClassValue<BeanMetadata> METADATA
+            = new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
+    private final Class<?> beanClass;
+    private final ConcurrentMap<String, PropertyMetadata> properties
+            = new ConcurrentHashMap<>();
+
+    private BeanMetadata(Class<?> beanClass) {
+        this.beanClass = beanClass;
+    }
+
+    /**
+     * @param beanClass the bean class
+     * @return the shared metadata of the class
+     */
+    public static BeanMetadata of(Class<?> beanClass) {
+        return METADATA.get(beanClass);
+    }
+
+    /**
+     * @param propertyPath the property path
+     * @return the metadata of the property or null if the property is not
+     * found
+     */
+    public PropertyMetadata getProperty(String propertyPath) {
+        PropertyMetadata metadata = properties.get(propertyPath);
+        if (metadata == null) {
+            metadata = resolve(propertyPath);
+            properties.putIfAbsent(propertyPath, metadata);
+        }
+        return metadata == UNKNOWN ? null : metadata;
+    }
+
+    private PropertyMetadata resolve(String path) {
+        final List<String> segments = split(path);
+        if (segments == null) {
+            return UNKNOWN;
+        }
+        Class<?> type = beanClass;
+        Type genericType = beanClass;
+        boolean writable = false;
+        boolean readable = true;
+        for (int i = 0; i < segments.size(); i++) {
+            if (!readable) {
+                return UNKNOWN;
+            }
+            String segment = segments.get(i);
+            final int keyStart = indexOfKey(segment);
+            final String name = keyStart < 0 ? segment : segment.substring(0,
+                    keyStart);
+            final PropertyDescriptor pd = BeanAccessors.findProperty(type, name);
+            Method getter = pd == null ? null : pd.getReadMethod();
+            if (getter == null) {
+                getter = BeanAccessors.findGetter(type, name);
+            }
+            if (getter != null) {
+                type = getter.getReturnType();
+                genericType = getter.getGenericReturnType();
+            } else if (keyStart < 0 && pd != null && pd.getPropertyType() != null) {
+                // write only property
+                readable = false;
+                type = pd.getPropertyType();
+            } else {
+                return UNKNOWN;
+            }
+            writable = pd != null && pd.getWriteMethod() != null;
+            if (keyStart >= 0) {
+                if (type.isArray()) {
+                    genericType = genericType instanceof GenericArrayType
+                            ? ((GenericArrayType) genericType).
+                                    getGenericComponentType()
+                            : type.getComponentType();
+                } else if (List.class.isAssignableFrom(type)
+                        && segment.charAt(keyStart) == '[') {
+                    genericType = typeArgument(genericType, 0);
+                } else if (Map.class.isAssignableFrom(type)) {
+                    genericType = typeArgument(genericType, 1);
+                } else {
+                    return UNKNOWN;
+                }
+                type = rawType(genericType);
+                // the element can be replaced in the list or map
+                writable = true;
+            }
+        }
+        return new PropertyMetadata(type, readable, writable);
+    }
+
+    /**
+     * Splits a path to segments, dots in mapped keys are not separators.
+     */
+    private static List<String> split(String path) {
+        final List<String> segments = new ArrayList<>();
+        int start = 0;
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == '.' && depth == 0) {
+                segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        segments.add(path.substring(start));
+        for (String segment : segments) {
+            final int keyStart = indexOfKey(segment);
+            if (segment.isEmpty() || keyStart == 0 || (keyStart > 0
+                    && indexOfKey(segment.substring(keyStart + 1)) >= 0)) {
+                // empty names and multiple keys are not supported
+                return null;
+            }
+        }
+        return depth == 0 ? segments : null;
+    }
+
+    private static int indexOfKey(String segment) {
+        final int index = segment.indexOf('[');
+        final int mapped = segment.indexOf('(');
+        return index < 0 ? mapped : mapped < 0 ? index : Math.min(index,
+                mapped);
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            final Type[] arguments = ((ParameterizedType) type).
+                    getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawType(
+                    ((GenericArrayType) type).getGenericComponentType()), 0).
+                    getClass();
+        }
+        // type variables and wildcards
+        return Object.class;
+    }
+
+    /**
+     * The metadata of a property path.
+     */
+    public static final class PropertyMetadata {
+
+        private final Class<?> type;
+        private final boolean readable;
+        private final boolean writable;
+        private final boolean sortable;
+
+        PropertyMetadata(Class<?> type, boolean readable, boolean writable) {
+            this.type = MethodType.methodType(type).wrap().returnType();
+            this.readable = readable;
+            this.writable = writable;
+            this.sortable = type.isPrimitive() || Comparable.class.
+                    isAssignableFrom(type);
+        }
+
+        /**
+         * @return the type of the property, wrapper types are returned for
+         * primitives, as Vaadin can't handle primitive types everywhere
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        public boolean isReadable() {
+            return readable;
+        }
+
+        public boolean isWritable() {
+            return writable;
+        }
+
+        /**
+         * @return true if the property is primitive or Comparable
+         */
+        public boolean isSortable() {
+            return sortable;
+        }
+    }
+
+}
@@ -49,6 +49,11 @@ public class DynaBeanItem<T> implements Item {
 
         @Override
         public Object getValue() {
+            final BeanAccessors.PropertyAccessor accessor = ListContainer.
+                    getAccessor(bean, propertyName);
+            if (accessor != null) {
+                return accessor.getValue(bean);
+            }
             try {
                 return getDynaBean().get(propertyName);
             } catch (Exception e) {
@@ -62,11 +67,24 @@ public class DynaBeanItem<T> implements Item {
 
         @Override
         public void setValue(Object newValue) throws Property.ReadOnlyException {
+            final BeanAccessors.PropertyAccessor accessor = ListContainer.
+                    getAccessor(bean, propertyName);
+            if (accessor != null && !accessor.isReadOnly()) {
+                accessor.setValue(bean, newValue);
+                return;
+            }
             getDynaBean().set(propertyName, newValue);
         }
 
         @Override
         public Class<?> getType() {
+            if (!(bean instanceof DynaBean)) {
+                final BeanMetadata.PropertyMetadata metadata = BeanMetadata.of(
+                        bean.getClass()).getProperty(propertyName);
+                if (metadata != null) {
+                    return metadata.getType();
+                }
+            }
             try {
                 final org.apache.commons.beanutils.DynaProperty dynaProperty = getDynaBean().
                         getDynaClass().
@@ -0,0 +1,142 @@
+package org.vaadin.viritin.v7;
+
+import com.vaadin.v7.data.Container.Filterable;
+import com.vaadin.v7.data.util.filter.And;
+import com.vaadin.v7.data.util.filter.Between;
+import com.vaadin.v7.data.util.filter.Compare;
+import com.vaadin.v7.data.util.filter.IsNull;
+import com.vaadin.v7.data.util.filter.Like;
+import com.vaadin.v7.data.util.filter.Not;
+import com.vaadin.v7.data.util.filter.Or;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
+import com.vaadin.v7.data.util.filter.UnsupportedFilterException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.vaadin.viritin.lazy.FilterDescriptor;
+
+/**
+ * A filterable ({@link Filterable}) {@link ListContainer} backed by a
+ * {@link FilterableSortableLazyList}. Unlike {@link FilterableListContainer},
+ * which filters the whole backing list in memory, the container filters are
+ * translated to a {@link FilterDescriptor} and passed to the backend, so
+ * filtering works also for data sets too large to be loaded into memory.
+ * <p>
+ * The supported filters are {@link Compare}, {@link SimpleStringFilter},
+ * {@link And}, {@link Or}, {@link Not}, {@link Between}, {@link Like} and
+ * {@link IsNull}.
+ *
+ * @param <T> the type of beans in the backed list
+ */
+public class FilterableLazyListContainer<T> extends ListContainer<T> implements
+        Filterable {
+
+    private static final long serialVersionUID = -4158436935512817247L;
+
+    private final FilterableSortableLazyList<T> list;
+    private final Map<Filter, FilterDescriptor> filters = new LinkedHashMap<>();
+
+    public FilterableLazyListContainer(Class<? extends T> type,
+            FilterableSortableLazyList<T> list) {
+        super(type, list);
+        this.list = list;
+    }
+
+    public FilterableSortableLazyList<T> getList() {
+        return list;
+    }
+
+    @Override
+    public void addContainerFilter(Filter filter) throws UnsupportedFilterException {
+        filters.put(filter, toFilterDescriptor(filter));
+        filterList();
+    }
+
+    @Override
+    public void removeContainerFilter(Filter filter) {
+        if (filters.remove(filter) != null) {
+            filterList();
+        }
+    }
+
+    @Override
+    public void removeAllContainerFilters() {
+        if (filters.isEmpty()) {
+            return;
+        }
+        filters.clear();
+        filterList();
+    }
+
+    @Override
+    public Collection<Filter> getContainerFilters() {
+        return Collections.unmodifiableCollection(filters.keySet());
+    }
+
+    private void filterList() {
+        list.setFilter(filters.isEmpty() ? null
+                : FilterDescriptor.and(filters.values()));
+        fireItemSetChange();
+    }
+
+    /**
+     * Translates a container filter to a filter descriptor.
+     *
+     * @param filter the container filter
+     * @return the descriptor of the filter
+     * @throws UnsupportedFilterException if the filter, or a filter in a
+     * junction, is not supported
+     */
+    public static FilterDescriptor toFilterDescriptor(Filter filter) throws
+            UnsupportedFilterException {
+        if (filter instanceof Compare) {
+            final Compare compare = (Compare) filter;
+            return FilterDescriptor.compare(FilterDescriptor.Operator.valueOf(
+                    compare.getOperation().name()), compare.getPropertyId(),
+                    compare.getValue());
+        } else if (filter instanceof SimpleStringFilter) {
+            final SimpleStringFilter f = (SimpleStringFilter) filter;
+            return f.isOnlyMatchPrefix()
+                    ? FilterDescriptor.startsWith(f.getPropertyId(),
+                            f.getFilterString(), f.isIgnoreCase())
+                    : FilterDescriptor.contains(f.getPropertyId(),
+                            f.getFilterString(), f.isIgnoreCase());
+        } else if (filter instanceof And) {
+            return FilterDescriptor.and(toFilterDescriptors(
+                    ((And) filter).getFilters()));
+        } else if (filter instanceof Or) {
+            return FilterDescriptor.or(toFilterDescriptors(
+                    ((Or) filter).getFilters()));
+        } else if (filter instanceof Not) {
+            return FilterDescriptor.not(toFilterDescriptor(
+                    ((Not) filter).getFilter()));
+        } else if (filter instanceof Between) {
+            final Between between = (Between) filter;
+            return FilterDescriptor.between(between.getPropertyId(),
+                    between.getStartValue(), between.getEndValue());
+        } else if (filter instanceof Like) {
+            final Like like = (Like) filter;
+            return FilterDescriptor.like(like.getPropertyId(), like.getValue(),
+                    !like.isCaseSensitive());
+        } else if (filter instanceof IsNull) {
+            return FilterDescriptor.isNull(((IsNull) filter).getPropertyId());
+        }
+        throw new UnsupportedFilterException("Filter not supported: "
+                + filter);
+    }
+
+    private static List<FilterDescriptor> toFilterDescriptors(
+            Collection<Filter> filters) throws UnsupportedFilterException {
+        final List<FilterDescriptor> descriptors = new ArrayList<>(filters.size());
+        for (Filter f : filters) {
+            descriptors.add(toFilterDescriptor(f));
+        }
+        return descriptors;
+    }
+
+}
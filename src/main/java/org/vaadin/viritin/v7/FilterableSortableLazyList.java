@@ -0,0 +1,175 @@
+package org.vaadin.viritin.v7;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.vaadin.viritin.LazyList;
+import org.vaadin.viritin.lazy.FilterDescriptor;
+
+/**
+ * A {@link SortableLazyList} whose rows can be filtered in the backend. The
+ * current filter is passed to the providers as a {@link FilterDescriptor}
+ * together with the sort order and the requested range, so that large data
+ * sets can be filtered without loading them into memory.
+ * <p>
+ * The cached pages and the size of recently used filters and sort orders are
+ * kept in memory, so switching back to one of them doesn't need queries to
+ * the backend, see {@link #setCachedSortOrders(int)}. If the paging provider
+ * implements {@link LazyList.QueryKeyProvider}, the filter is also included
+ * in the key of the shared page cache.
+ *
+ * @param <T> The type of the objects in the list
+ * @see FilterableLazyListContainer
+ */
+public class FilterableSortableLazyList<T> extends SortableLazyList<T> {
+
+    private static final long serialVersionUID = -3870522181936528934L;
+
+    /**
+     * Fetches filtered and sorted ranges of entities from the backend.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface FilterablePagingProvider<T> extends Serializable {
+
+        /**
+         * Fetches the given range of entities from the backend.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param maxResults the maximum number of rows that should be fetched
+         * @param sortAscending the directions to be used for sorting, true if
+         * ascending
+         * @param properties the properties based on the sorting should be
+         * done, null for natural order
+         * @param filter the filter the entities should match, null if the
+         * list is not filtered
+         * @return a sub list from given first index
+         */
+        public List<T> findEntities(int firstRow, int maxResults,
+                boolean[] sortAscending, String[] properties,
+                FilterDescriptor filter);
+    }
+
+    /**
+     * Counts the entities matching a filter.
+     */
+    public interface FilterableCountProvider extends Serializable {
+
+        /**
+         * @param filter the filter the entities should match, null if the
+         * list is not filtered
+         * @return the count of entities matching the filter
+         */
+        public int size(FilterDescriptor filter);
+    }
+
+    private final FilteredQuery<T> query;
+
+    /**
+     * Constructs a new list with given providers and default page size of
+     * DEFAULT_PAGE_SIZE (30).
+     *
+     * @param pageProvider the interface via filtered ranges of entities are
+     * requested
+     * @param countProvider the interface via the count of filtered entities
+     * is detected
+     */
+    public FilterableSortableLazyList(FilterablePagingProvider<T> pageProvider,
+            FilterableCountProvider countProvider) {
+        this(pageProvider, countProvider, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructs a new list with given providers and page size.
+     *
+     * @param pageProvider the interface via filtered ranges of entities are
+     * requested
+     * @param countProvider the interface via the count of filtered entities
+     * is detected
+     * @param pageSize the page size that should be used
+     */
+    public FilterableSortableLazyList(FilterablePagingProvider<T> pageProvider,
+            FilterableCountProvider countProvider, int pageSize) {
+        this(new FilteredQuery<>(pageProvider, countProvider), pageSize);
+    }
+
+    private FilterableSortableLazyList(FilteredQuery<T> query, int pageSize) {
+        super(query, query, pageSize);
+        this.query = query;
+    }
+
+    /**
+     * @return the current filter, null if the list is not filtered
+     */
+    public FilterDescriptor getFilter() {
+        return query.filter;
+    }
+
+    /**
+     * Filters the list. The pages and the size of the previous filter are
+     * kept like the pages of a previous sort order. Setting the current
+     * filter again does nothing, use {@link #reset()} to reload the rows.
+     *
+     * @param filter the filter the entities should match, null to list all
+     * entities
+     */
+    public void setFilter(FilterDescriptor filter) {
+        if (Objects.equals(filter, query.filter)) {
+            return;
+        }
+        final List<Object> oldKey = getCacheKey();
+        query.filter = filter;
+        queryChanged(oldKey);
+    }
+
+    @Override
+    protected List<Object> getCacheKey() {
+        final List<Object> key = new ArrayList<>(super.getCacheKey());
+        key.add(query.filter);
+        return key;
+    }
+
+    /**
+     * Passes the current filter of the list to the providers.
+     */
+    private static class FilteredQuery<T> implements
+            SortableRangePagingProvider<T>, CountProvider, QueryKeyProvider {
+
+        private static final long serialVersionUID = 4218357302846291543L;
+
+        private final FilterablePagingProvider<T> pageProvider;
+        private final FilterableCountProvider countProvider;
+        private volatile FilterDescriptor filter;
+
+        FilteredQuery(FilterablePagingProvider<T> pageProvider,
+                FilterableCountProvider countProvider) {
+            this.pageProvider = pageProvider;
+            this.countProvider = countProvider;
+        }
+
+        @Override
+        public List<T> findEntities(int firstRow, int maxResults,
+                boolean[] sortAscending, String[] properties) {
+            return pageProvider.findEntities(firstRow, maxResults,
+                    sortAscending, properties, filter);
+        }
+
+        @Override
+        public int size() {
+            return countProvider.size(filter);
+        }
+
+        @Override
+        public Object getQueryKey() {
+            if (!(pageProvider instanceof QueryKeyProvider)) {
+                return null;
+            }
+            final Object queryKey = ((QueryKeyProvider) pageProvider).
+                    getQueryKey();
+            return queryKey == null ? null : Arrays.asList(queryKey, filter);
+        }
+    }
+
+}
@@ -69,6 +69,7 @@ public class ListContainer<T> extends AbstractContainer implements
     public ListContainer(Class<? extends T> type, Collection<? extends T> backingList) {
         if (type != null) {
             dynaClass = WrapDynaClass.createDynaClass(type);
+            beanClass = type;
         }
         setCollection(backingList);
     }
@@ -86,6 +87,7 @@ public class ListContainer<T> extends AbstractContainer implements
     public ListContainer(Class<? extends T> type) {
         backingList = new ArrayList<>();
         dynaClass = WrapDynaClass.createDynaClass(type);
+        beanClass = type;
     }
 
     public ListContainer(Class<? extends T> type, String... properties) {
@@ -108,8 +110,14 @@ public class ListContainer<T> extends AbstractContainer implements
     }
 
     private transient DynaClass dynaClass;
+    // the type of the beans, null if not known or if the container lists
+    // DynaBeans
+    private Class<?> beanClass;
 
     private DynaClass getDynaClass() {
+        if (dynaClass == null && beanClass != null) {
+            dynaClass = WrapDynaClass.createDynaClass(beanClass);
+        }
         if (dynaClass == null && !backingList.isEmpty()) {
             return getDynaClass(backingList.get(0));
         }
@@ -122,6 +130,7 @@ public class ListContainer<T> extends AbstractContainer implements
                 dynaClass = ((DynaBean) reference).getDynaClass();
             } else {
                 dynaClass = WrapDynaClass.createDynaClass(reference.getClass());
+                beanClass = reference.getClass();
             }
         }
         return dynaClass;
@@ -256,9 +265,28 @@ public class ListContainer<T> extends AbstractContainer implements
         return (i != null) ? i.getItemProperty(propertyId) : null;
     }
 
+    /**
+     * @param propertyName the property path
+     * @return the shared metadata of the property, null if the bean class is
+     * not known or the property is not found from it
+     */
+    private BeanMetadata.PropertyMetadata getPropertyMetadata(
+            String propertyName) {
+        if (beanClass == null) {
+            getDynaClass();
+        }
+        return beanClass == null ? null : BeanMetadata.of(beanClass).
+                getProperty(propertyName);
+    }
+
     @Override
     public Class<?> getType(Object propertyId) {
         final String pName = propertyId.toString();
+        final BeanMetadata.PropertyMetadata metadata = getPropertyMetadata(
+                pName);
+        if (metadata != null) {
+            return metadata.getType();
+        }
         try {
             final DynaProperty dynaProperty = getDynaClass().getDynaProperty(
                     pName);
@@ -429,9 +457,7 @@ public class ListContainer<T> extends AbstractContainer implements
                 SortableLazyList sll = (SortableLazyList) backingList;
                 String[] stringProperties = new String[propertyId.length];
                 System.arraycopy(propertyId, 0, stringProperties, 0, propertyId.length);
-                sll.setSortProperty(stringProperties);
-                sll.setSortAscending(ascending);
-                sll.reset();
+                sll.sort(ascending, stringProperties);
             } else {
                 Comparator<T> comparator = new PropertyComparator(propertyId,
                         ascending);
@@ -454,6 +480,14 @@ public class ListContainer<T> extends AbstractContainer implements
         final ArrayList<String> props = new ArrayList<>();
         for (Object a : getContainerPropertyIds()) {
             String propName = a.toString();
+            final BeanMetadata.PropertyMetadata metadata = getPropertyMetadata(
+                    propName);
+            if (metadata != null) {
+                if (metadata.isSortable()) {
+                    props.add(propName);
+                }
+                continue;
+            }
             try {
                 Class<?> propType = getType(propName);
                 if (propType != null && (propType.isPrimitive() || Comparable.class.isAssignableFrom(propType))) {
@@ -514,6 +548,29 @@ public class ListContainer<T> extends AbstractContainer implements
         super.fireItemSetChange();
     }
 
+    /**
+     * Returns the compiled accessor of a property of a bean, null if the
+     * bean is a DynaBean or the property is not supported by
+     * {@link BeanAccessors}.
+     */
+    static BeanAccessors.PropertyAccessor getAccessor(Object bean,
+            String propertyName) {
+        if (bean == null || bean instanceof DynaBean) {
+            return null;
+        }
+        return BeanAccessors.get(bean.getClass(), propertyName);
+    }
+
+    private Object getPropertyValue(T bean, Object propertyId) {
+        final BeanAccessors.PropertyAccessor accessor = getAccessor(bean,
+                propertyId.toString());
+        if (accessor != null) {
+            return accessor.getValue(bean);
+        }
+        final Property property = getContainerProperty(bean, propertyId);
+        return property != null ? property.getValue() : null;
+    }
+
     private class PropertyComparator implements Comparator<T> {
 
         private final Object[] propertyId;
@@ -534,11 +591,8 @@ public class ListContainer<T> extends AbstractContainer implements
                     currentComparator = new ReverseComparator(currentComparator);
                 }
 
-                final Property o1Prop = getContainerProperty(o1, propertyId[i]);
-                Object o1Value = (o1Prop != null) ? o1Prop.getValue() : null;
-
-                final Property o2Prop = getContainerProperty(o2, propertyId[i]);
-                Object o2Value = (o2Prop != null) ? o2Prop.getValue() : null;
+                Object o1Value = getPropertyValue(o1, propertyId[i]);
+                Object o2Value = getPropertyValue(o2, propertyId[i]);
 
                 int compare = currentComparator.compare(o1Value, o2Value);
                 if (compare != 0) {
@@ -570,6 +624,11 @@ public class ListContainer<T> extends AbstractContainer implements
 
             @Override
             public Object getValue() {
+                final BeanAccessors.PropertyAccessor accessor = getAccessor(
+                        bean, propertyName);
+                if (accessor != null) {
+                    return accessor.getValue(bean);
+                }
                 DynaBean dynaBean = getDynaBean();
                 try {
                     return dynaBean.get(propertyName);
@@ -605,6 +664,12 @@ public class ListContainer<T> extends AbstractContainer implements
                     throw new ReadOnlyException();
                 }
 
+                final BeanAccessors.PropertyAccessor accessor = getAccessor(
+                        bean, propertyName);
+                if (accessor != null && !accessor.isReadOnly()) {
+                    accessor.setValue(bean, newValue);
+                    return;
+                }
                 try {
                     PropertyUtils.setProperty(bean, propertyName, newValue);
                 } catch (final IllegalAccessException
@@ -621,6 +686,11 @@ public class ListContainer<T> extends AbstractContainer implements
 
             @Override
             public boolean isReadOnly() {
+                final BeanMetadata.PropertyMetadata metadata
+                        = getPropertyMetadata(propertyName);
+                if (metadata != null) {
+                    return !metadata.isWritable();
+                }
                 DynaClass clazz = getDynaClass();
                 if (clazz instanceof WrapDynaClass) {
                     return ((WrapDynaClass) clazz).getPropertyDescriptor(propertyName).
@@ -1,8 +1,17 @@
 package org.vaadin.viritin.v7;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.vaadin.viritin.LazyList;
+import org.vaadin.viritin.lazy.EntityChange;
 
 /**
  * A general purpose helper class to us MTable/ListContainer for service layers
@@ -18,16 +27,87 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
 
     private static final long serialVersionUID = 6271514642253054989L;
 
+    /**
+     * The default number of recently used sort orders whose cached pages are
+     * kept in memory.
+     */
+    public static final int DEFAULT_CACHED_SORT_ORDERS = 3;
+
     public void sort(boolean ascending, String property) {
-        sortAscending[0] = ascending;
-        sortProperty = new String[]{property};
-        // TODO resetting size at this point is actually obsolete?
-        reset();
+        sort(new boolean[]{ascending}, new String[]{property});
+    }
+
+    /**
+     * Changes the sort order of the list. Sorting doesn't change the number of
+     * entities, so the size of the list is kept. The cached pages of recently
+     * used sort orders are kept in memory, so switching back to one of them
+     * doesn't need queries to the backend. Sorting again with the current
+     * sort order resets the list.
+     *
+     * @param ascending the directions to be used for sorting, true if
+     * ascending
+     * @param properties the properties based on the sorting should be done,
+     * null for natural order
+     * @see #setCachedSortOrders(int)
+     */
+    public void sort(boolean[] ascending, String[] properties) {
+        final List<Object> oldKey = getCacheKey();
+        sortAscending = ascending;
+        sortProperty = properties;
+        if (oldKey.equals(getCacheKey())) {
+            reset();
+            return;
+        }
+        if (sortInMemory()) {
+            // the size is kept, the pages are served from the sorted rows
+            restorePages(null);
+            return;
+        }
+        switchCachedPages(oldKey, false);
+    }
+
+    /**
+     * Notifies the list that the query has changed so that it lists
+     * different rows, e.g. because of a new filter. The pages and the size of
+     * the previous query are kept like the pages of a previous sort order,
+     * and the pages and size of the new query are restored if they are still
+     * cached.
+     *
+     * @param oldKey the cache key of the list before the change, see
+     * {@link #getCacheKey()}
+     */
+    protected void queryChanged(List<Object> oldKey) {
+        naturalRows = null;
+        sortedRows = null;
+        switchCachedPages(oldKey, true);
+    }
+
+    private void switchCachedPages(List<Object> oldKey, boolean restoreSize) {
+        final Object pagesOfNewKey = sortOrderPages == null ? null
+                : sortOrderPages.remove(getCacheKey());
+        final Object pagesOfOldKey = takePages();
+        if (cachedSortOrders > 0 && pagesOfOldKey != null) {
+            getSortOrderPages().put(oldKey, pagesOfOldKey);
+            Iterator<Object> it = sortOrderPages.values().iterator();
+            while (sortOrderPages.size() > cachedSortOrders) {
+                it.next();
+                it.remove();
+            }
+        }
+        restorePages(pagesOfNewKey, restoreSize);
     }
-    
+
     private boolean[] sortAscending = new boolean[]{true};
     private String[] sortProperty;
 
+    private int cachedSortOrders = DEFAULT_CACHED_SORT_ORDERS;
+    private transient LinkedHashMap<List<Object>, Object> sortOrderPages;
+
+    private int inMemorySortThreshold;
+    // all rows in natural order and sorted with the current sort order
+    private transient List<T> naturalRows;
+    private transient volatile List<T> sortedRows;
+
     // Split into subinterfaces for better Java 8 lambda support
     /**
      * Interface via the LazyList communicates with the "backend"
@@ -70,6 +150,83 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
                 String[] properties);
     }
 
+    /**
+     * A sortable paging provider that lets the list decide how many rows are
+     * fetched, see {@link LazyList.RangePagingProvider}.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface SortableRangePagingProvider<T> extends Serializable {
+
+        /**
+         * Fetches the given range of entities from the backend.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param maxResults the maximum number of rows that should be fetched
+         * @param sortAscending the directions to be used for sorting, true if ascending
+         * @param properties the properties based on the sorting should be done, null for natural order
+         * @return a sub list from given first index
+         */
+        public List<T> findEntities(int firstRow, int maxResults,
+                boolean[] sortAscending, String[] properties);
+    }
+
+    /**
+     * A sortable paging provider that supports keyset (aka seek) pagination,
+     * see {@link LazyList.KeysetPagingProvider}. The sort properties are
+     * passed to the backend, so that the seek predicate can be built to match
+     * the ORDER BY clause, e.g. {@code WHERE (name, id) > (?, ?) ORDER BY name,
+     * id}.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface SortableKeysetPagingProvider<T> extends MultiSortablePagingProvider<T> {
+
+        /**
+         * Fetches the page that follows the given entity.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param previous the last entity of the previous page
+         * @param sortAscending the directions to be used for sorting, true if ascending
+         * @param properties the properties based on the sorting should be done, null for natural order
+         * @return the entities following previous, in list order
+         */
+        public List<T> findEntitiesAfter(int firstRow, T previous,
+                boolean[] sortAscending, String[] properties);
+
+        /**
+         * Fetches the page that precedes the given entity.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param next the first entity of the following page
+         * @param sortAscending the directions to be used for sorting, true if ascending
+         * @param properties the properties based on the sorting should be done, null for natural order
+         * @return the entities preceding next, in list order
+         */
+        public List<T> findEntitiesBefore(int firstRow, T next,
+                boolean[] sortAscending, String[] properties);
+    }
+
+    /**
+     * An optional interface via the list can ask the backend for the position
+     * of an entity with the current sort order, see
+     * {@link LazyList.IndexProvider}.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface SortableIndexProvider<T> extends Serializable {
+
+        /**
+         * @param entity the entity whose index is requested
+         * @param sortAscending the directions used for sorting, true if ascending
+         * @param properties the properties based on the sorting is done, null for natural order
+         * @return the index of the entity in the list, -1 if it is not in the
+         * list
+         */
+        public int indexOf(T entity, boolean[] sortAscending,
+                String[] properties);
+    }
+
     /**
      * Interface via the LazyList communicates with the "backend"
      *
@@ -80,6 +237,7 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
 
     private final SortablePagingProvider<T> sortablePageProvider;
     private final MultiSortablePagingProvider<T> multiSortablePageProvider;
+    private final SortableRangePagingProvider<T> sortableRangePageProvider;
 
     /**
      * Constructs a new LazyList with given provider and default page size of
@@ -104,6 +262,7 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
         super(dataProvider, pageSize);
         this.sortablePageProvider = dataProvider;
         this.multiSortablePageProvider = null;
+        this.sortableRangePageProvider = null;
     }
 
     /**
@@ -131,6 +290,7 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
         super(countProvider, pageSize);
         this.sortablePageProvider = pageProvider;
         this.multiSortablePageProvider = null;
+        this.sortableRangePageProvider = null;
     }
 
     /**
@@ -146,19 +306,136 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
         super(countProvider, pageSize);
         this.sortablePageProvider = null;
         this.multiSortablePageProvider = pageProvider;
+        this.sortableRangePageProvider = null;
+    }
+
+    /**
+     * Constructs a new LazyList with given providers and page size.
+     *
+     * @param pageProvider the interface via ranges of entities are requested
+     * @param countProvider the interface via the total count of entities is
+     * detected.
+     * @param pageSize the page size that should be used
+     */
+    public SortableLazyList(SortableRangePagingProvider<T> pageProvider, CountProvider countProvider,
+            int pageSize) {
+        super(countProvider, pageSize);
+        this.sortablePageProvider = null;
+        this.multiSortablePageProvider = null;
+        this.sortableRangePageProvider = pageProvider;
     }
 
     @Override
     protected List<T> findEntities(int i) {
+        final List<T> rows = sortedRows;
+        if (rows != null && i < rows.size()) {
+            return new ArrayList<>(rows.subList(i, Math.min(rows.size(),
+                    i + getPageSize())));
+        }
+        if (sortableRangePageProvider != null) {
+            return findEntities(i, getPageSize());
+        }
         if(multiSortablePageProvider != null) {
             return multiSortablePageProvider.findEntities(i, getSortAscending(), getSortProperty());
         }
-        String sortProp = null;
-        if(sortProperty != null && sortProperty.length > 0) {
-            sortProp = sortProperty[0];
+        return sortablePageProvider.findEntities(i, isSortAscending(),
+                getFirstSortProperty());
+    }
+
+    /**
+     * Sets the provider used to find the index of an entity with the current
+     * sort order from the backend.
+     *
+     * @param indexProvider the provider used to detect indexes of entities
+     * @see LazyList#setIndexProvider(org.vaadin.viritin.LazyList.IndexProvider)
+     */
+    public void setIndexProvider(final SortableIndexProvider<T> indexProvider) {
+        setIndexProvider(entity -> indexProvider.indexOf(entity,
+                getSortAscending(), getSortProperty()));
+    }
+
+    @Override
+    protected List<T> findEntities(int firstRow, int maxResults) {
+        final List<T> rows = sortedRows;
+        if (rows != null && firstRow < rows.size()) {
+            return new ArrayList<>(rows.subList(firstRow, Math.min(rows.size(),
+                    firstRow + maxResults)));
+        }
+        if (sortableRangePageProvider != null) {
+            return sortableRangePageProvider.findEntities(firstRow, maxResults,
+                    getSortAscending(), getSortProperty());
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean isRangeLoadingSupported() {
+        return sortableRangePageProvider != null;
+    }
+
+    @Override
+    protected List<T> findEntitiesAfter(int firstRow, T previous) {
+        if (sortedRows != null) {
+            return null;
+        }
+        if (multiSortablePageProvider instanceof SortableKeysetPagingProvider) {
+            return ((SortableKeysetPagingProvider<T>) multiSortablePageProvider).
+                    findEntitiesAfter(firstRow, previous, getSortAscending(),
+                            getSortProperty());
+        }
+        return null;
+    }
+
+    @Override
+    protected List<T> findEntitiesBefore(int firstRow, T next) {
+        if (sortedRows != null) {
+            return null;
+        }
+        if (multiSortablePageProvider instanceof SortableKeysetPagingProvider) {
+            return ((SortableKeysetPagingProvider<T>) multiSortablePageProvider).
+                    findEntitiesBefore(firstRow, next, getSortAscending(),
+                            getSortProperty());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the query key of the paging provider combined with the current
+     * sort order, so that differently sorted pages are never mixed in a
+     * shared page cache.
+     *
+     * @return the key identifying the query, null if the provider doesn't
+     * implement QueryKeyProvider
+     */
+    @Override
+    protected Object getQueryKey() {
+        if (sortedRows != null) {
+            // rows with equal sort values may be ordered differently than in
+            // the backend, so the pages are not shared
+            return null;
+        }
+        Object provider = sortablePageProvider != null ? sortablePageProvider
+                : multiSortablePageProvider != null ? multiSortablePageProvider
+                : sortableRangePageProvider;
+        if (!(provider instanceof QueryKeyProvider)) {
+            return null;
+        }
+        Object queryKey = ((QueryKeyProvider) provider).getQueryKey();
+        if (queryKey == null) {
+            return null;
+        }
+        if (sortablePageProvider == null) {
+            return Arrays.asList(queryKey, Arrays.toString(sortProperty),
+                    Arrays.toString(sortAscending));
+        }
+        return Arrays.asList(queryKey, getFirstSortProperty(), isSortAscending());
+    }
+
+    private String getFirstSortProperty() {
+        if (sortProperty != null && sortProperty.length > 0) {
+            return sortProperty[0];
         }
-        
-        return sortablePageProvider.findEntities(i, isSortAscending(), sortProp);
+        return null;
     }
 
     public boolean isSortAscending() {
@@ -177,6 +454,234 @@ public class SortableLazyList<T> extends LazyList<T> implements Serializable {
         return sortProperty;
     }
 
+    public int getCachedSortOrders() {
+        return cachedSortOrders;
+    }
+
+    /**
+     * Sets the number of recently used sort orders, besides the current one,
+     * whose cached pages are kept in memory.
+     *
+     * @param cachedSortOrders the number of cached sort orders, 0 to load the
+     * pages again on each sort change
+     */
+    public void setCachedSortOrders(int cachedSortOrders) {
+        this.cachedSortOrders = cachedSortOrders;
+        clearSortOrderPages();
+    }
+
+    public int getInMemorySortThreshold() {
+        return inMemorySortThreshold;
+    }
+
+    /**
+     * Enables sorting in memory for small result sets. When the list is
+     * sorted and it has at most the given number of rows, all rows are loaded
+     * from the backend once, in natural order, and this and the following
+     * sort orders are sorted in memory without queries to the backend. The
+     * list returns to sorting in the backend when it is reset or notified
+     * about changed rows. As the rows may have changed without a
+     * notification, the entities are counted again on each sort while in
+     * memory sorting is enabled: if the count has grown over the threshold,
+     * the list is sorted in the backend, and if it has otherwise changed,
+     * the rows are loaded again.
+     * <p>
+     * The rows are sorted by the values of their bean properties, nested
+     * properties like "address.city" are supported. If a property can't be
+     * read, the list is sorted in the backend.
+     *
+     * @param inMemorySortThreshold the maximum number of rows sorted in
+     * memory, 0 (default) to always sort in the backend
+     */
+    public void setInMemorySortThreshold(int inMemorySortThreshold) {
+        this.inMemorySortThreshold = inMemorySortThreshold;
+    }
+
+    /**
+     * @return true if the list is currently sorted in memory
+     */
+    public boolean isSortedInMemory() {
+        return sortedRows != null;
+    }
+
+    @Override
+    public void reset() {
+        dataChanged();
+        super.reset();
+    }
+
+    @Override
+    public void invalidateRange(int fromIndex, int toIndex) {
+        // the rows may be anywhere in other sort orders
+        dataChanged();
+        super.invalidateRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public void entityInserted(int index, T entity) {
+        dataChanged();
+        super.entityInserted(index, entity);
+    }
+
+    @Override
+    public void entityRemoved(int index) {
+        dataChanged();
+        super.entityRemoved(index);
+    }
+
+    @Override
+    public boolean applyChange(EntityChange<T> change) {
+        dataChanged();
+        return super.applyChange(change);
+    }
+
+    private void dataChanged() {
+        clearSortOrderPages();
+        naturalRows = null;
+        sortedRows = null;
+    }
+
+    /**
+     * Sorts the rows in memory if the list is small enough.
+     *
+     * @return true if the list was sorted in memory
+     */
+    private boolean sortInMemory() {
+        if (inMemorySortThreshold <= 0 || recount() > inMemorySortThreshold) {
+            naturalRows = null;
+            sortedRows = null;
+            return false;
+        }
+        try {
+            if (naturalRows == null || naturalRows.size() != size()) {
+                sortedRows = null;
+                naturalRows = loadNaturalRows();
+            }
+            sortedRows = sortRows(naturalRows);
+            return true;
+        } catch (NoSuchMethodException ex) {
+            Logger.getLogger(SortableLazyList.class.getName()).log(Level.FINE,
+                    "Sorting in memory failed, sorting in the backend", ex);
+            sortedRows = null;
+            return false;
+        }
+    }
+
+    /**
+     * Loads all rows in natural order, without a sort property.
+     */
+    private List<T> loadNaturalRows() {
+        final int size = size();
+        final boolean[] ascending = new boolean[]{true};
+        if (sortableRangePageProvider != null) {
+            return sortableRangePageProvider.findEntities(0, size, ascending,
+                    null);
+        }
+        final List<T> rows = new ArrayList<>(size);
+        while (rows.size() < size) {
+            final List<T> page = multiSortablePageProvider != null
+                    ? multiSortablePageProvider.findEntities(rows.size(),
+                            ascending, null)
+                    : sortablePageProvider.findEntities(rows.size(), true, null);
+            if (page.isEmpty()) {
+                break;
+            }
+            rows.addAll(page);
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts the rows with the current sort order. The sort values are read
+     * once per row, and rows with equal values keep their natural order.
+     */
+    private List<T> sortRows(List<T> rows) throws NoSuchMethodException {
+        final String[] properties = sortProperty;
+        if (properties == null || properties.length == 0
+                || (properties.length == 1 && properties[0] == null)) {
+            return Collections.unmodifiableList(rows);
+        }
+        final boolean[] ascending = sortAscending;
+        final Object[][] values = new Object[rows.size()][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Object[properties.length];
+            for (int j = 0; j < properties.length; j++) {
+                values[i][j] = readProperty(rows.get(i), properties[j]);
+            }
+        }
+        final Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            for (int j = 0; j < properties.length; j++) {
+                int result = compareValues(values[a][j], values[b][j]);
+                if (result != 0) {
+                    return j < ascending.length && !ascending[j] ? -result : result;
+                }
+            }
+            return 0;
+        });
+        final List<T> sorted = new ArrayList<>(order.length);
+        for (Integer i : order) {
+            sorted.add(rows.get(i));
+        }
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private static Object readProperty(Object bean, String property) throws
+            NoSuchMethodException {
+        if (bean == null) {
+            return null;
+        }
+        final BeanAccessors.PropertyAccessor accessor = BeanAccessors.get(
+                bean.getClass(), property);
+        if (accessor == null) {
+            throw new NoSuchMethodException(bean.getClass().getName() + "."
+                    + property);
+        }
+        return accessor.getValue(bean);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            // nulls first in ascending order
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    private Map<List<Object>, Object> getSortOrderPages() {
+        if (sortOrderPages == null) {
+            sortOrderPages = new LinkedHashMap<>(16, 0.75f, true);
+        }
+        return sortOrderPages;
+    }
+
+    private void clearSortOrderPages() {
+        if (sortOrderPages != null) {
+            sortOrderPages.clear();
+        }
+    }
+
+    /**
+     * Returns the key under which the cached pages of the current query are
+     * kept when the query changes. Subclasses adding other query parameters
+     * than the sort order should include them in the key.
+     *
+     * @return a key identifying the current sort order
+     */
+    protected List<Object> getCacheKey() {
+        final boolean natural = sortProperty == null || sortProperty.length == 0
+                || (sortProperty.length == 1 && sortProperty[0] == null);
+        return Arrays.asList(natural ? null : Arrays.toString(sortProperty),
+                Arrays.toString(sortAscending));
+    }
+
     public void setSortProperty(String[] sortProperty) {
         this.sortProperty = sortProperty;
     }
@@ -34,6 +34,7 @@ public class LazyComboBox<T> extends TypedSelect<T> {
     private String currentFilter;
     private FilterablePagingProvider<T> fpp;
     private FilterableCountProvider fcp;
+    private FilterableRangePagingProvider<T> frpp;
     private String lastRawFilter;
     private boolean useRawFilter = false;
 
@@ -60,6 +61,27 @@ public class LazyComboBox<T> extends TypedSelect<T> {
         public int size(String filter);
     }
 
+    /**
+     * Interface via the LazyComboBox loads options without counting them.
+     * The component then fetches one extra row to detect whether there are
+     * more options and lets the user page forward until the last one is
+     * found.
+     *
+     * @param <T> The type of the objects in the list
+     */
+    public interface FilterableRangePagingProvider<T> {
+
+        /**
+         * Fetches the given range of entities from the backend.
+         *
+         * @param firstRow the index of first row that should be fetched
+         * @param maxResults the maximum number of rows that should be fetched
+         * @param filter the filter typed in by the user
+         * @return a sub list from given first index
+         */
+        public List<T> findEntities(int firstRow, int maxResults, String filter);
+    }
+
     private LazyList<T> piggybackLazyList;
 
     /* Instantiates a memory and CPU efficient ComboBox, typically wired to EJB
@@ -116,6 +138,22 @@ public class LazyComboBox<T> extends TypedSelect<T> {
         initList(elementType, filterablePageProvider, countProvider, pageLength);
     }
 
+    /**
+     * Instantiates a memory and CPU efficient ComboBox that doesn't count its
+     * options, see {@link FilterableRangePagingProvider}. By default page size
+     * of LazyList.DEFAULT_PAGE_SIZE (30) is used.
+     *
+     * @param elementType the type of options in the select
+     * @param filterableRangePagingProvider the interface via entities are
+     * fetched
+     */
+    public LazyComboBox(Class<T> elementType,
+            final FilterableRangePagingProvider<T> filterableRangePagingProvider) {
+        this();
+        this.frpp = filterableRangePagingProvider;
+        initList(elementType, null, null, LazyList.DEFAULT_PAGE_SIZE);
+    }
+
     protected final ComboBox initList(
             Class<T> elementType,
             FilterablePagingProvider<T> filterablePageProvider,
@@ -123,26 +161,12 @@ public class LazyComboBox<T> extends TypedSelect<T> {
 
         this.fpp = filterablePageProvider;
         this.fcp = countProvider1;
+        if (filterablePageProvider != null) {
+            this.frpp = null;
+        }
 
         // piggyback to simple paging provider
-        piggybackLazyList = new LazyList<>(new LazyList.PagingProvider<T>() {
-
-            private static final long serialVersionUID = 1027614132444478021L;
-
-            @Override
-            public List<T> findEntities(int firstRow) {
-                return fpp.findEntities(firstRow,
-                        getCurrentFilter());
-            }
-        },
-                new LazyList.CountProvider() {
-            private static final long serialVersionUID = -7339189124024626177L;
-
-            @Override
-            public int size() {
-                return fcp.size(getCurrentFilter());
-            }
-        }, pageLength);
+        piggybackLazyList = createPiggybackLazyList(pageLength);
 
         final ComboBox comboBox = new ComboBox() {
 
@@ -225,6 +249,12 @@ public class LazyComboBox<T> extends TypedSelect<T> {
      * of options with current filter
      */
     public void loadFrom(FilterablePagingProvider<T> filterablePagingProvider, FilterableCountProvider filterableCountProvider) {
+        if (frpp != null) {
+            // the list needs a count provider now
+            loadFrom(filterablePagingProvider, filterableCountProvider,
+                    piggybackLazyList.getPageSize());
+            return;
+        }
         this.fpp = filterablePagingProvider;
         this.fcp = filterableCountProvider;
         refresh();
@@ -243,8 +273,47 @@ public class LazyComboBox<T> extends TypedSelect<T> {
     public void loadFrom(FilterablePagingProvider<T> filterablePagingProvider, FilterableCountProvider filterableCountProvider, int pageLength) {
         this.fpp = filterablePagingProvider;
         this.fcp = filterableCountProvider;
+        this.frpp = null;
         // Need to re-create the piggybackList & set container, some refactoring should be done here
-        piggybackLazyList = new LazyList<>(new LazyList.PagingProvider<T>() {
+        piggybackLazyList = createPiggybackLazyList(pageLength);
+        setBic(new DummyFilterableListContainer<T>(getType(),
+                piggybackLazyList));
+        getSelect().setContainerDataSource(getBic());
+    }
+
+    /**
+     * Set a new strategy how to load options, without counting them.
+     *
+     * @param filterableRangePagingProvider the provider that gives the
+     * actual options in ranges
+     * @param pageLength the length of the pages that component should use to
+     * access the provider
+     * @see FilterableRangePagingProvider
+     */
+    public void loadFrom(FilterableRangePagingProvider<T> filterableRangePagingProvider, int pageLength) {
+        this.fpp = null;
+        this.fcp = null;
+        this.frpp = filterableRangePagingProvider;
+        piggybackLazyList = createPiggybackLazyList(pageLength);
+        setBic(new DummyFilterableListContainer<T>(getType(),
+                piggybackLazyList));
+        getSelect().setContainerDataSource(getBic());
+    }
+
+    private LazyList<T> createPiggybackLazyList(int pageLength) {
+        if (frpp != null) {
+            return new LazyList<>(new LazyList.RangePagingProvider<T>() {
+
+                private static final long serialVersionUID = -2108376493011386517L;
+
+                @Override
+                public List<T> findEntities(int firstRow, int maxResults) {
+                    return frpp.findEntities(firstRow, maxResults,
+                            getCurrentFilter());
+                }
+            }, pageLength);
+        }
+        return new LazyList<>(new LazyList.PagingProvider<T>() {
 
             private static final long serialVersionUID = 1027614132444478021L;
 
@@ -262,9 +331,6 @@ public class LazyComboBox<T> extends TypedSelect<T> {
                 return fcp.size(getCurrentFilter());
             }
         }, pageLength);
-        setBic(new DummyFilterableListContainer<T>(getType(),
-                piggybackLazyList));
-        getSelect().setContainerDataSource(getBic());
     }
 
     public static void fixComboBoxVaadinIssue16647(final ComboBox comboBox) {
@@ -297,6 +363,17 @@ public class LazyComboBox<T> extends TypedSelect<T> {
         markAsDirty();
     }
 
+    /**
+     * Refreshes a single modified option. Only the cached page containing the
+     * option is fetched again, instead of resetting the whole backing list.
+     *
+     * @param option the modified option
+     */
+    public void refreshOption(T option) {
+        piggybackLazyList.invalidateEntity(option);
+        markAsDirty();
+    }
+
     public String getCurrentFilter() {
         return useRawFilter ? lastRawFilter : currentFilter;
     }
@@ -21,10 +21,12 @@ import com.vaadin.event.MouseEvents;
 import com.vaadin.server.Resource;
 import com.vaadin.shared.MouseEventDetails;
 import com.vaadin.ui.Component;
+import com.vaadin.ui.UI;
 import com.vaadin.v7.ui.Table;
 import com.vaadin.util.ReflectTools;
 import org.apache.commons.lang3.StringUtils;
 import org.vaadin.viritin.LazyList;
+import org.vaadin.viritin.lazy.EntityChange;
 import org.vaadin.viritin.v7.ListContainer;
 import org.vaadin.viritin.MSize;
 import org.vaadin.viritin.v7.SortableLazyList;
@@ -71,6 +73,35 @@ public class MTable<T> extends Table {
     private String sortProperty;
     private boolean sortAscending;
 
+    // Refreshes rows when pages that were shown as placeholders are loaded,
+    // see AsyncLazyList
+    private final LazyList.PageLoadListener pageLoadListener = (firstRow, rowCount) -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(this::refreshRowCache);
+        }
+    };
+
+    // Applies the exact size when it replaces an estimate, see
+    // LazyList.EstimatingCountProvider
+    private final LazyList.SizeChangeListener sizeChangeListener = size -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(() -> bic.fireItemSetChange());
+        }
+    };
+
+    private LazyList.ChangeFeed<T> changeFeed;
+
+    // Applies changes published by the change feed, pushed to the client if
+    // push is enabled
+    private final LazyList.EntityChangeListener<T> entityChangeListener = change -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(() -> applyChange(change));
+        }
+    };
+
     public MTable() {
     }
 
@@ -449,6 +480,8 @@ public class MTable<T> extends Table {
     }
 
     public MTable<T> setBeans(Collection<T> beans) {
+        final Collection<?> oldBeans = isContainerInitialized() ? bic.
+                getItemIds() : null;
 
         if (sortProperty != null && beans instanceof SortableLazyList) {
             final SortableLazyList sll = (SortableLazyList) beans;
@@ -461,9 +494,86 @@ public class MTable<T> extends Table {
         } else if (isContainerInitialized()) {
             bic.setCollection(beans);
         }
+        if (isAttached() && isContainerInitialized() && oldBeans != bic.
+                getItemIds()) {
+            listenLazyLoading(oldBeans, false);
+            listenLazyLoading(bic.getItemIds(), true);
+        }
+        return this;
+    }
+
+    @Override
+    public void attach() {
+        super.attach();
+        if (isContainerInitialized()) {
+            listenLazyLoading(bic.getItemIds(), true);
+        }
+        if (changeFeed != null) {
+            changeFeed.addEntityChangeListener(entityChangeListener);
+        }
+    }
+
+    @Override
+    public void detach() {
+        if (changeFeed != null) {
+            changeFeed.removeEntityChangeListener(entityChangeListener);
+        }
+        if (isContainerInitialized()) {
+            listenLazyLoading(bic.getItemIds(), false);
+        }
+        super.detach();
+    }
+
+    public LazyList.ChangeFeed<T> getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Sets the feed of backend changes the Table follows while attached.
+     * Changes are applied to the cached pages of the LazyList listed in the
+     * Table, so that the Table shows live data without querying the backend
+     * again. Enable push to get the changes to the client immediately.
+     *
+     * @param changeFeed the feed of entity changes or null to stop following
+     * changes
+     * @return this
+     */
+    public MTable<T> setChangeFeed(LazyList.ChangeFeed<T> changeFeed) {
+        if (isAttached() && this.changeFeed != null) {
+            this.changeFeed.removeEntityChangeListener(entityChangeListener);
+        }
+        this.changeFeed = changeFeed;
+        if (isAttached() && changeFeed != null) {
+            changeFeed.addEntityChangeListener(entityChangeListener);
+        }
         return this;
     }
 
+    private void applyChange(EntityChange<T> change) {
+        if (!isContainerInitialized() || !(bic.getItemIds() instanceof LazyList)) {
+            return;
+        }
+        LazyList<T> lazyList = (LazyList<T>) bic.getItemIds();
+        if (lazyList.applyChange(change)
+                && change.getType() == EntityChange.Type.UPDATED) {
+            refreshRowCache();
+        } else {
+            bic.fireItemSetChange();
+        }
+    }
+
+    private void listenLazyLoading(Collection<?> beans, boolean listen) {
+        if (beans instanceof LazyList) {
+            if (listen) {
+                ((LazyList) beans).addPageLoadListener(pageLoadListener);
+                ((LazyList) beans).addSizeChangeListener(sizeChangeListener);
+            } else {
+                ((LazyList) beans).removePageLoadListener(pageLoadListener);
+                ((LazyList) beans).removeSizeChangeListener(sizeChangeListener);
+            }
+        }
+    }
+
     public MTable<T> setRows(Collection<T> beansForRows) {
         return setBeans(beansForRows);
     }
@@ -861,6 +971,23 @@ public class MTable<T> extends Table {
         resetPageBuffer();
     }
 
+    /**
+     * Refreshes the rows of the given entities. If the Table is backed by a
+     * LazyList, only the cached pages containing the entities are
+     * invalidated, instead of resetting the whole list.
+     *
+     * @param entities the entities whose rows should be refreshed
+     */
+    public void refreshRows(Collection<T> entities) {
+        if (bic != null && bic.getItemIds() instanceof LazyList) {
+            LazyList<T> lazyList = (LazyList<T>) bic.getItemIds();
+            for (T entity : entities) {
+                lazyList.invalidateEntity(entity);
+            }
+        }
+        resetPageBuffer();
+    }
+
     /**
      * Sets the row of given entity as selected. This is practically a better
      * typed version for select(Object) and setValue(Object) methods.
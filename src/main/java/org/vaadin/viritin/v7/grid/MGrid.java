@@ -11,6 +11,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.vaadin.viritin.LazyList;
+import org.vaadin.viritin.lazy.EntityChange;
 import org.vaadin.viritin.v7.ListContainer;
 import org.vaadin.viritin.MSize;
 import org.vaadin.viritin.v7.SortableLazyList;
@@ -23,6 +24,7 @@ import com.vaadin.v7.data.util.PropertyValueGenerator;
 import com.vaadin.v7.event.SortEvent;
 import com.vaadin.v7.event.SortEvent.SortListener;
 import com.vaadin.server.Extension;
+import com.vaadin.ui.UI;
 import com.vaadin.v7.ui.Grid;
 
 /**
@@ -35,6 +37,35 @@ public class MGrid<T> extends Grid {
 
     private Class<T> typeOfRows;
 
+    // Refreshes rows when pages that were shown as placeholders are loaded,
+    // see AsyncLazyList
+    private final LazyList.PageLoadListener pageLoadListener = (firstRow, rowCount) -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(this::refreshVisibleRows);
+        }
+    };
+
+    // Applies the exact size when it replaces an estimate, see
+    // LazyList.EstimatingCountProvider
+    private final LazyList.SizeChangeListener sizeChangeListener = size -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(() -> getListContainer().fireItemSetChange());
+        }
+    };
+
+    private LazyList.ChangeFeed<T> changeFeed;
+
+    // Applies changes published by the change feed, pushed to the client if
+    // push is enabled
+    private final LazyList.EntityChangeListener<T> entityChangeListener = change -> {
+        UI ui = getUI();
+        if (ui != null) {
+            ui.access(() -> applyChange(change));
+        }
+    };
+
     public MGrid() {
     }
 
@@ -173,6 +204,8 @@ public class MGrid<T> extends Grid {
     }
 
     public MGrid<T> setRows(List<T> rows) {
+        final Collection<?> oldRows = getContainerDataSource() instanceof ListContainer ? getListContainer().
+                getItemIds() : null;
         if (getContainerDataSource() instanceof ListContainer) {
             
             Collection<?> itemIds = getListContainer().getItemIds();
@@ -189,9 +222,87 @@ public class MGrid<T> extends Grid {
         } else {
             setContainerDataSource(new ListContainer(rows));
         }
+        if (isAttached() && oldRows != rows) {
+            listenLazyLoading(oldRows, false);
+            listenLazyLoading(rows, true);
+        }
         return this;
     }
 
+    @Override
+    public void attach() {
+        super.attach();
+        if (getContainerDataSource() instanceof ListContainer) {
+            listenLazyLoading(getListContainer().getItemIds(), true);
+        }
+        if (changeFeed != null) {
+            changeFeed.addEntityChangeListener(entityChangeListener);
+        }
+    }
+
+    @Override
+    public void detach() {
+        if (changeFeed != null) {
+            changeFeed.removeEntityChangeListener(entityChangeListener);
+        }
+        if (getContainerDataSource() instanceof ListContainer) {
+            listenLazyLoading(getListContainer().getItemIds(), false);
+        }
+        super.detach();
+    }
+
+    public LazyList.ChangeFeed<T> getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Sets the feed of backend changes the Grid follows while attached.
+     * Changes are applied to the cached pages of the LazyList listed in the
+     * Grid and only the affected rows are refreshed, so that the Grid shows
+     * live data without querying the backend again. Enable push to get the
+     * changes to the client immediately.
+     *
+     * @param changeFeed the feed of entity changes or null to stop following
+     * changes
+     * @return this
+     */
+    public MGrid<T> setChangeFeed(LazyList.ChangeFeed<T> changeFeed) {
+        if (isAttached() && this.changeFeed != null) {
+            this.changeFeed.removeEntityChangeListener(entityChangeListener);
+        }
+        this.changeFeed = changeFeed;
+        if (isAttached() && changeFeed != null) {
+            changeFeed.addEntityChangeListener(entityChangeListener);
+        }
+        return this;
+    }
+
+    private void applyChange(EntityChange<T> change) {
+        if (!(getContainerDataSource() instanceof ListContainer)
+                || !(getListContainer().getItemIds() instanceof LazyList)) {
+            return;
+        }
+        LazyList<T> lazyList = (LazyList<T>) getListContainer().getItemIds();
+        if (lazyList.applyChange(change)
+                && change.getType() == EntityChange.Type.UPDATED) {
+            refreshRow(change.getEntity());
+        } else {
+            getListContainer().fireItemSetChange();
+        }
+    }
+
+    private void listenLazyLoading(Collection<?> rows, boolean listen) {
+        if (rows instanceof LazyList) {
+            if (listen) {
+                ((LazyList) rows).addPageLoadListener(pageLoadListener);
+                ((LazyList) rows).addSizeChangeListener(sizeChangeListener);
+            } else {
+                ((LazyList) rows).removePageLoadListener(pageLoadListener);
+                ((LazyList) rows).removeSizeChangeListener(sizeChangeListener);
+            }
+        }
+    }
+
     public List<T> getRows() {
         return (List<T>) getListContainer().getItemIds();
     }
@@ -366,6 +477,27 @@ public class MGrid<T> extends Grid {
         }
     }
 
+    /**
+     * Refreshes the rows of the given beans. If the Grid is backed by a
+     * LazyList, the cached pages containing the beans are invalidated, so
+     * that the modified beans are fetched again from the backend, without
+     * resetting the whole list.
+     *
+     * @param beans the beans whose rows should be refreshed.
+     */
+    public void refreshRows(Collection<T> beans) {
+        if (getContainerDataSource() instanceof ListContainer && getListContainer().
+                getItemIds() instanceof LazyList) {
+            LazyList<T> lazyList = (LazyList<T>) getListContainer().getItemIds();
+            for (T bean : beans) {
+                lazyList.invalidateEntity(bean);
+            }
+        }
+        for (T bean : beans) {
+            refreshRow(bean);
+        }
+    }
+
     /**
      * Manually forces refresh of the whole data. ListContainer backing
      * MGrid/MTable don't support property change listeners (to save memory and
@@ -0,0 +1,90 @@
+package org.vaadin.viritin;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.viritin.testdomain.Person;
+import org.vaadin.viritin.v7.BeanAccessors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class BeanAccessorsTest {
+
+    public static class Holder {
+
+        private Person person;
+
+        public Person getPerson() {
+            return person;
+        }
+
+        public void setPerson(Person person) {
+            this.person = person;
+        }
+
+        public String getDerived() {
+            return person == null ? null : person.getFirstName() + "!";
+        }
+    }
+
+    static class Hidden {
+
+        private int value = 5;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void simpleAndNestedPropertiesAreReadAndWritten() {
+        final Holder holder = new Holder();
+        final BeanAccessors.PropertyAccessor name = BeanAccessors.get(
+                Holder.class, "person.firstName");
+        Assert.assertThat(name.getType() == String.class, is(true));
+        // null on the path reads as null
+        Assert.assertThat(name.getValue(holder), is(nullValue()));
+
+        holder.setPerson(new Person(1, "Dick", "Grayson", 12));
+        Assert.assertThat(name.getValue(holder), is((Object) "Dick"));
+        name.setValue(holder, "Robin");
+        Assert.assertThat(holder.getPerson().getFirstName(), is("Robin"));
+
+        final BeanAccessors.PropertyAccessor age = BeanAccessors.get(
+                Holder.class, "person.age");
+        age.setValue(holder, 13);
+        Assert.assertThat(age.getValue(holder), is((Object) 13));
+
+        final BeanAccessors.PropertyAccessor derived = BeanAccessors.get(
+                Holder.class, "derived");
+        Assert.assertThat(derived.isReadOnly(), is(true));
+        Assert.assertThat(derived.getValue(holder), is((Object) "Robin!"));
+
+        // accessors are resolved once per class
+        Assert.assertThat(BeanAccessors.get(Holder.class, "person.firstName")
+                == name, is(true));
+    }
+
+    @Test
+    public void nonPublicClassesAreAccessedWithMethodHandles() {
+        final Hidden hidden = new Hidden();
+        final BeanAccessors.PropertyAccessor value = BeanAccessors.get(
+                Hidden.class, "value");
+        Assert.assertThat(value.getValue(hidden), is((Object) 5));
+        value.setValue(hidden, 6);
+        Assert.assertThat(hidden.getValue(), is(6));
+    }
+
+    @Test
+    public void unsupportedPathsReturnNull() {
+        Assert.assertThat(BeanAccessors.get(Person.class, "addresses[0].city"),
+                is(nullValue()));
+        Assert.assertThat(BeanAccessors.get(Person.class, "missing"),
+                is(nullValue()));
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.vaadin.viritin;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.viritin.testdomain.Address;
+import org.vaadin.viritin.testdomain.Group;
+import org.vaadin.viritin.testdomain.Person;
+import org.vaadin.viritin.v7.BeanMetadata;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class BeanMetadataTest {
+
+    public static class Bean {
+
+        public Map<String, Integer> getValues() {
+            return null;
+        }
+
+        public List getUntyped() {
+            return null;
+        }
+
+        public Address[] getAddressArray() {
+            return null;
+        }
+
+        public String getDerived() {
+            return null;
+        }
+    }
+
+    @Test
+    public void typesOfNestedIndexedAndMappedPathsAreResolved() {
+        final BeanMetadata person = BeanMetadata.of(Person.class);
+        Assert.assertThat(person.getProperty("id").getType() == Integer.class,
+                is(true));
+        Assert.assertThat(person.getProperty("groups[0].name").getType()
+                == String.class, is(true));
+        Assert.assertThat(person.getProperty("groups[0].iidee").getType()
+                == Integer.class, is(true));
+        Assert.assertThat(person.getProperty("addresses[1]").getType()
+                == Address.class, is(true));
+
+        final BeanMetadata bean = BeanMetadata.of(Bean.class);
+        Assert.assertThat(bean.getProperty("values(a.b)").getType()
+                == Integer.class, is(true));
+        Assert.assertThat(bean.getProperty("untyped[0]").getType()
+                == Object.class, is(true));
+        Assert.assertThat(bean.getProperty("addressArray[0].city").getType()
+                == String.class, is(true));
+
+        Assert.assertThat(person.getProperty("generated"), is(nullValue()));
+        Assert.assertThat(person.getProperty("groups.name"), is(nullValue()));
+    }
+
+    @Test
+    public void writabilityAndSortabilityAreCachedPerClass() {
+        final BeanMetadata.PropertyMetadata name = BeanMetadata.of(
+                Person.class).getProperty("groups[0].name");
+        Assert.assertThat(name.isWritable(), is(true));
+        Assert.assertThat(name.isSortable(), is(true));
+        Assert.assertThat(BeanMetadata.of(Person.class).getProperty(
+                "groups[0].name") == name, is(true));
+
+        final BeanMetadata bean = BeanMetadata.of(Bean.class);
+        Assert.assertThat(bean.getProperty("derived").isWritable(), is(false));
+        Assert.assertThat(bean.getProperty("untyped[0]").isSortable(),
+                is(false));
+        Assert.assertThat(BeanMetadata.of(Group.class).getProperty("name").
+                isReadable(), is(true));
+    }
+
+}
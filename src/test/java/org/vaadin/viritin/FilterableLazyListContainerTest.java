@@ -0,0 +1,153 @@
+package org.vaadin.viritin;
+
+import com.vaadin.v7.data.Container.Filter;
+import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.util.filter.And;
+import com.vaadin.v7.data.util.filter.Between;
+import com.vaadin.v7.data.util.filter.Compare;
+import com.vaadin.v7.data.util.filter.IsNull;
+import com.vaadin.v7.data.util.filter.Like;
+import com.vaadin.v7.data.util.filter.Not;
+import com.vaadin.v7.data.util.filter.Or;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
+import com.vaadin.v7.data.util.filter.UnsupportedFilterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.viritin.lazy.FilterDescriptor;
+import org.vaadin.viritin.lazy.FilterDescriptor.Operator;
+import org.vaadin.viritin.testdomain.Person;
+import org.vaadin.viritin.testdomain.Service;
+import org.vaadin.viritin.v7.FilterableLazyListContainer;
+import org.vaadin.viritin.v7.FilterableSortableLazyList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class FilterableLazyListContainerTest {
+
+    private static final Filter CUSTOM = new Filter() {
+        @Override
+        public boolean passesFilter(Object itemId, Item item) {
+            return true;
+        }
+
+        @Override
+        public boolean appliesToProperty(Object propertyId) {
+            return false;
+        }
+    };
+
+    private static FilterDescriptor translate(Filter filter) {
+        return FilterableLazyListContainer.toFilterDescriptor(filter);
+    }
+
+    @Test
+    public void compareFiltersAreTranslatedForEachOperation() {
+        Assert.assertThat(translate(new Compare.Equal("age", 30)), is(
+                FilterDescriptor.compare(Operator.EQUAL, "age", 30)));
+        Assert.assertThat(translate(new Compare.Greater("age", 30)), is(
+                FilterDescriptor.compare(Operator.GREATER, "age", 30)));
+        Assert.assertThat(translate(new Compare.Less("age", 30)), is(
+                FilterDescriptor.compare(Operator.LESS, "age", 30)));
+        Assert.assertThat(translate(new Compare.GreaterOrEqual("age", 30)),
+                is(FilterDescriptor.compare(Operator.GREATER_OR_EQUAL, "age",
+                        30)));
+        Assert.assertThat(translate(new Compare.LessOrEqual("age", 30)), is(
+                FilterDescriptor.compare(Operator.LESS_OR_EQUAL, "age", 30)));
+    }
+
+    @Test
+    public void simpleStringFiltersKeepCaseAndPrefixOptions() {
+        Assert.assertThat(translate(new SimpleStringFilter("firstName", "dick",
+                true, false)), is(FilterDescriptor.contains("firstName",
+                        "dick", true)));
+        Assert.assertThat(translate(new SimpleStringFilter("firstName", "Dick",
+                false, false)), is(FilterDescriptor.contains("firstName",
+                        "Dick", false)));
+        Assert.assertThat(translate(new SimpleStringFilter("firstName", "di",
+                true, true)), is(FilterDescriptor.startsWith("firstName", "di",
+                        true)));
+        Assert.assertThat(translate(new SimpleStringFilter("firstName", "Di",
+                false, true)), is(FilterDescriptor.startsWith("firstName",
+                        "Di", false)));
+    }
+
+    @Test
+    public void junctionsAndConditionsAreTranslated() {
+        final FilterDescriptor young = FilterDescriptor.compare(Operator.LESS,
+                "age", 30);
+        final FilterDescriptor noLastName = FilterDescriptor.isNull("lastName");
+
+        Assert.assertThat(translate(new And(new Compare.Less("age", 30),
+                new IsNull("lastName"))), is(FilterDescriptor.and(Arrays.asList(
+                        young, noLastName))));
+        Assert.assertThat(translate(new Or(new Compare.Less("age", 30),
+                new IsNull("lastName"))), is(FilterDescriptor.or(Arrays.asList(
+                        young, noLastName))));
+        Assert.assertThat(translate(new Not(new IsNull("lastName"))), is(
+                FilterDescriptor.not(noLastName)));
+        Assert.assertThat(translate(new Between("age", 20, 30)), is(
+                FilterDescriptor.between("age", 20, 30)));
+        Assert.assertThat(translate(new IsNull("lastName")), is(noLastName));
+
+        // Like is case sensitive by default
+        Assert.assertThat(translate(new Like("lastName", "Gr%")), is(
+                FilterDescriptor.like("lastName", "Gr%", false)));
+        Assert.assertThat(translate(new Like("lastName", "gr%", false)), is(
+                FilterDescriptor.like("lastName", "gr%", true)));
+    }
+
+    @Test(expected = UnsupportedFilterException.class)
+    public void unsupportedFilterIsRejected() {
+        translate(CUSTOM);
+    }
+
+    @Test(expected = UnsupportedFilterException.class)
+    public void unsupportedFilterInJunctionIsRejected() {
+        translate(new And(new IsNull("lastName"), new Not(CUSTOM)));
+    }
+
+    @Test
+    public void containerFiltersAreCombinedToListFilter() {
+        final List<Person> persons = Service.getListOfPersons(100);
+        final List<FilterDescriptor> queried = new ArrayList<>();
+        final FilterableSortableLazyList<Person> list
+                = new FilterableSortableLazyList<>(
+                        (firstRow, maxResults, sortAscending, properties,
+                                filter) -> {
+                            queried.add(filter);
+                            return persons.subList(firstRow, Math.min(
+                                    firstRow + maxResults, persons.size()));
+                        }, filter -> persons.size(), 10);
+        final FilterableLazyListContainer<Person> container
+                = new FilterableLazyListContainer<>(Person.class, list);
+
+        final Filter young = new Compare.Less("age", 30);
+        final Filter noLastName = new IsNull("lastName");
+        container.addContainerFilter(young);
+        container.addContainerFilter(noLastName);
+        Assert.assertThat(list.getFilter(), is(FilterDescriptor.and(Arrays.
+                asList(translate(young), translate(noLastName)))));
+        Assert.assertThat(container.getContainerFilters().size(), is(2));
+
+        container.removeContainerFilter(young);
+        Assert.assertThat(list.getFilter(), is(translate(noLastName)));
+
+        // a rejected filter doesn't change the list
+        try {
+            container.addContainerFilter(CUSTOM);
+            Assert.fail("Custom filters are not supported");
+        } catch (UnsupportedFilterException expected) {
+            Assert.assertThat(list.getFilter(), is(translate(noLastName)));
+        }
+
+        container.removeAllContainerFilters();
+        Assert.assertThat(list.getFilter(), is(nullValue()));
+        list.get(0);
+        Assert.assertThat(queried.get(queried.size() - 1), is(nullValue()));
+    }
+
+}
@@ -0,0 +1,1161 @@
+package org.vaadin.viritin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+import org.vaadin.viritin.lazy.AdaptivePageSize;
+import org.vaadin.viritin.lazy.EntityChange;
+import org.vaadin.viritin.lazy.LatencyHistogram;
+import org.vaadin.viritin.lazy.LazyListStatistics;
+import org.vaadin.viritin.lazy.LruPageStore;
+import org.vaadin.viritin.lazy.PageLoadingExecutors;
+import org.vaadin.viritin.lazy.SharedPageCache;
+
+public class LazyListTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int SIZE = 1000;
+
+    private final List<Integer> requestedRows = new ArrayList<>();
+
+    private class SharedPagingProvider implements LazyList.PagingProvider<Integer>,
+            LazyList.QueryKeyProvider {
+
+        @Override
+        public List<Integer> findEntities(int firstRow) {
+            requestedRows.add(firstRow);
+            return new ArrayList<>(Arrays.asList(firstRow));
+        }
+
+        @Override
+        public Object getQueryKey() {
+            return "catalog";
+        }
+    }
+
+    private static class RecordingProvider implements
+            LazyList.PagingProvider<Integer> {
+
+        private final List<Integer> requestedRows = new ArrayList<>();
+
+        @Override
+        public List<Integer> findEntities(int firstRow) {
+            requestedRows.add(firstRow);
+            return range(firstRow, firstRow + PAGE_SIZE);
+        }
+    }
+
+    private class KeysetProvider implements LazyList.KeysetPagingProvider<Integer> {
+
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public List<Integer> findEntities(int firstRow) {
+            calls.add("offset " + firstRow);
+            return range(firstRow, firstRow + PAGE_SIZE);
+        }
+
+        @Override
+        public List<Integer> findEntitiesAfter(int firstRow, Integer previous) {
+            calls.add("after " + previous);
+            return range(previous + 1, previous + 1 + PAGE_SIZE);
+        }
+
+        @Override
+        public List<Integer> findEntitiesBefore(int firstRow, Integer next) {
+            calls.add("before " + next);
+            return range(next - PAGE_SIZE, next);
+        }
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> page = new ArrayList<>();
+        for (int i = Math.max(0, from); i < Math.min(to, SIZE); i++) {
+            page.add(i);
+        }
+        return page;
+    }
+
+    private LazyList<Integer> createList() {
+        return new LazyList<>(firstRow -> {
+            requestedRows.add(firstRow);
+            List<Integer> page = new ArrayList<>();
+            for (int i = firstRow; i < Math.min(firstRow + PAGE_SIZE, SIZE); i++) {
+                page.add(i);
+            }
+            return page;
+        }, () -> SIZE, PAGE_SIZE);
+    }
+
+    @Test
+    public void prefetchesNextPageWhenScrollingForward() {
+        List<Runnable> tasks = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        list.setPrefetchExecutor(tasks::add);
+
+        Assert.assertEquals(Integer.valueOf(0), list.get(0));
+        Assert.assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        Assert.assertEquals(2, requestedRows.size());
+        Assert.assertEquals(Integer.valueOf(PAGE_SIZE), requestedRows.get(1));
+
+        // prefetched page is used, no synchronous request
+        Assert.assertEquals(Integer.valueOf(15), list.get(15));
+        Assert.assertEquals(2, requestedRows.size());
+    }
+
+    @Test
+    public void prefetchesPreviousPageWhenScrollingBackward() {
+        Executor direct = Runnable::run;
+        LazyList<Integer> list = createList();
+        list.setPrefetchExecutor(direct);
+
+        list.get(500);
+        list.get(495);
+        Assert.assertEquals(Integer.valueOf(480), requestedRows.get(
+                requestedRows.size() - 1));
+        int requests = requestedRows.size();
+        Assert.assertEquals(Integer.valueOf(485), list.get(485));
+        Assert.assertEquals(requests + 1, requestedRows.size());
+    }
+
+    @Test
+    public void prefetchedPagesAreMergedToCachedWindow() {
+        List<Runnable> tasks = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        list.setPrefetchExecutor(tasks::add);
+
+        list.get(0);
+        tasks.remove(0).run();
+        list.get(10);
+        tasks.remove(0).run();
+        Assert.assertEquals(Integer.valueOf(25), list.get(25));
+        Assert.assertEquals(3, requestedRows.size());
+    }
+
+    @Test
+    public void resetDiscardsPrefetchedPages() {
+        List<Runnable> tasks = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        list.setPrefetchExecutor(tasks::add);
+
+        list.get(0);
+        list.reset();
+        tasks.remove(0).run();
+        list.get(10);
+        Assert.assertEquals(Integer.valueOf(10), requestedRows.get(
+                requestedRows.size() - 1));
+    }
+
+    @Test
+    public void pageStoreKeepsNonAdjacentPages() {
+        LazyList<Integer> list = createList();
+        LruPageStore<Integer> store = new LruPageStore<>(10);
+        list.setPageStore(store);
+
+        list.get(0);
+        list.get(SIZE - 1);
+        list.get(1);
+        list.get(SIZE - 2);
+        Assert.assertEquals(2, requestedRows.size());
+        Assert.assertEquals(2, store.getHitCount());
+        Assert.assertEquals(2, store.getMissCount());
+        Assert.assertEquals(0.5, store.getHitRate(), 0.001);
+
+        list.reset();
+        Assert.assertEquals(0, store.getPageCount());
+    }
+
+    @Test
+    public void pageStoreEvictsLeastRecentlyUsedPages() {
+        LruPageStore<Integer> store = new LruPageStore<>(2);
+        store.put(0, new ArrayList<>());
+        store.put(1, new ArrayList<>());
+        store.get(0);
+        store.put(2, new ArrayList<>());
+        Assert.assertNotNull(store.get(0));
+        Assert.assertNull(store.get(1));
+        Assert.assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    public void prefetchDoesNotCountAsPageStoreMiss() {
+        List<Runnable> tasks = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        LruPageStore<Integer> store = new LruPageStore<>(10);
+        list.setPageStore(store);
+        list.setPrefetchExecutor(tasks::add);
+
+        list.get(0);
+        Assert.assertEquals(1, tasks.size());
+        Assert.assertEquals(1, store.getMissCount());
+        Assert.assertEquals(0, store.getHitCount());
+    }
+
+    @Test
+    public void statesOfPagesEvictedFromPageStoreAreForgotten() throws
+            Exception {
+        LazyList<Integer> list = createList();
+        list.setMaxPages(2);
+        list.setPageTimeToLive(1, TimeUnit.MINUTES);
+        list.setPageStore(new LruPageStore<>(3));
+        for (int i = 0; i < 50; i++) {
+            list.get(i * PAGE_SIZE);
+        }
+        Field pageStates = LazyList.class.getDeclaredField("pageStates");
+        pageStates.setAccessible(true);
+        Assert.assertEquals(3, ((Map<?, ?>) pageStates.get(list)).size());
+    }
+
+    @Test
+    public void pageStoreCanBeLimitedByEstimatedSize() {
+        LazyList<Integer> list = createList();
+        LruPageStore<Integer> store = new LruPageStore<>(1000, 50);
+        list.setPageStore(store);
+
+        for (int i = 0; i < 5; i++) {
+            list.get(i * 100);
+        }
+        Assert.assertEquals(2, store.getPageCount());
+        Assert.assertEquals(1000, store.getEstimatedBytes());
+    }
+
+    @Test
+    public void sharedPageCacheIsUsedByListsWithSameQueryKey() {
+        SharedPageCache cache = new SharedPageCache(100, 1, TimeUnit.MINUTES);
+        LazyList<Integer> first = new LazyList<>(new SharedPagingProvider(),
+                () -> SIZE, 1);
+        first.setSharedPageCache(cache);
+        LazyList<Integer> second = new LazyList<>(new SharedPagingProvider(),
+                () -> SIZE, 1);
+        second.setSharedPageCache(cache);
+
+        first.get(5);
+        second.get(5);
+        Assert.assertEquals(1, requestedRows.size());
+        Assert.assertEquals(1, cache.getHitCount());
+
+        // reset of a list doesn't affect other sessions
+        first.reset();
+        first.get(5);
+        Assert.assertEquals(1, requestedRows.size());
+
+        cache.invalidate("catalog");
+        second.reset();
+        second.get(5);
+        Assert.assertEquals(2, requestedRows.size());
+    }
+
+    @Test
+    public void sharedPageCacheEntriesExpire() {
+        final long[] time = new long[1];
+        SharedPageCache cache = new SharedPageCache(100, 10, TimeUnit.NANOSECONDS) {
+            @Override
+            protected long currentTime() {
+                return time[0];
+            }
+        };
+        cache.put("key", 0, Arrays.asList(1));
+        time[0] = 9;
+        Assert.assertNotNull(cache.get("key", 0));
+        time[0] = 11;
+        Assert.assertNull(cache.get("key", 0));
+    }
+
+    @Test
+    public void sharedPageCacheDoesNotExceedMaxPages() {
+        for (int maxPages : new int[]{1, 5, 20, 100}) {
+            SharedPageCache cache = new SharedPageCache(maxPages, 1,
+                    TimeUnit.MINUTES);
+            for (int i = 0; i < SIZE; i++) {
+                cache.put("key", i, Arrays.asList(i));
+            }
+            Assert.assertTrue(cache.getPageCount() <= maxPages);
+            Assert.assertTrue(cache.getPageCount() > maxPages / 2);
+            Assert.assertEquals(SIZE - cache.getPageCount(), cache.
+                    getEvictionCount());
+        }
+    }
+
+    @Test
+    public void keysetPaginationIsUsedForAdjacentPages() {
+        KeysetProvider provider = new KeysetProvider();
+        LazyList<Integer> list = new LazyList<>(provider, () -> SIZE, PAGE_SIZE);
+
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals(Integer.valueOf(i), list.get(i));
+        }
+        Assert.assertEquals(Arrays.asList("offset 0", "after 9", "after 19"),
+                provider.calls);
+
+        provider.calls.clear();
+        Assert.assertEquals(Integer.valueOf(500), list.get(500));
+        Assert.assertEquals(Integer.valueOf(495), list.get(495));
+        Assert.assertEquals(Arrays.asList("offset 500", "before 500"),
+                provider.calls);
+    }
+
+    @Test
+    public void indexProviderIsUsedInsteadOfIterating() {
+        final List<Integer> indexRequests = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        list.setIndexProvider(entity -> {
+            indexRequests.add(entity);
+            return entity < SIZE ? entity : -1;
+        });
+
+        Assert.assertTrue(list.contains(777));
+        Assert.assertEquals(777, list.indexOf(777));
+        Assert.assertEquals(-1, list.indexOf(SIZE + 1));
+        Assert.assertEquals(Arrays.asList(777, SIZE + 1), indexRequests);
+        Assert.assertTrue(requestedRows.isEmpty());
+    }
+
+    @Test
+    public void containsProviderIsUsedInsteadOfIterating() {
+        LazyList<Integer> list = createList();
+        list.setContainsProvider(entity -> entity < SIZE);
+        list.get(0);
+
+        Assert.assertTrue(list.contains(5));
+        Assert.assertTrue(list.contains(777));
+        Assert.assertFalse(list.contains(SIZE));
+        Assert.assertEquals(1, requestedRows.size());
+    }
+
+    @Test
+    public void subListIsLoadedWithSingleRangeRequest() {
+        final List<String> calls = new ArrayList<>();
+        LazyList<Integer> list = new LazyList<>(
+                (firstRow, maxResults) -> {
+                    calls.add(firstRow + "+" + maxResults);
+                    return range(firstRow, firstRow + maxResults);
+                }, () -> SIZE, PAGE_SIZE);
+
+        Assert.assertEquals(range(5, 75), list.subList(5, 75));
+        Assert.assertEquals(Arrays.asList("0+80"), calls);
+
+        // only the missing pages are fetched
+        Assert.assertEquals(range(60, 100), list.subList(60, 100));
+        Assert.assertEquals(Arrays.asList("0+80", "80+20"), calls);
+
+        Assert.assertEquals(Integer.valueOf(100), list.get(100));
+        Assert.assertEquals("100+10", calls.get(calls.size() - 1));
+    }
+
+    @Test
+    public void subListIsMergedToCachedWindow() {
+        final List<String> calls = new ArrayList<>();
+        LazyList<Integer> list = new LazyList<>(
+                (firstRow, maxResults) -> {
+                    calls.add(firstRow + "+" + maxResults);
+                    return range(firstRow, firstRow + maxResults);
+                }, () -> SIZE, PAGE_SIZE);
+        LazyListStatistics statistics = new LazyListStatistics();
+        list.setMetrics(statistics);
+
+        list.subList(0, 20);
+        list.get(25);
+        Assert.assertEquals(range(20, 40), list.subList(20, 40));
+        Assert.assertEquals(Arrays.asList("0+20", "20+10", "30+10"), calls);
+        Assert.assertEquals(1, statistics.getPagesEvicted());
+
+        // the neighbour of the range is still cached
+        Assert.assertEquals(Integer.valueOf(15), list.get(15));
+        Assert.assertEquals(3, calls.size());
+
+        list.subList(500, 510);
+        Assert.assertEquals("500+10", calls.get(3));
+        Assert.assertEquals(4, statistics.getPagesEvicted());
+        Assert.assertEquals(1, list.pages.size());
+    }
+
+    @Test
+    public void pagesOfSubListAreLoadedConcurrently() throws InterruptedException {
+        final int pagesInRange = 5;
+        // each request waits until all of them have been started
+        final CountDownLatch allStarted = new CountDownLatch(pagesInRange);
+        LazyList<Integer> list = new LazyList<>(firstRow -> {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Pages not loaded concurrently");
+                }
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return range(firstRow, firstRow + PAGE_SIZE);
+        }, () -> SIZE, PAGE_SIZE);
+        ExecutorService executor = PageLoadingExecutors.newExecutor();
+        try {
+            list.setParallelLoadingExecutor(executor);
+            Assert.assertEquals(range(100, 150), list.subList(100, 150));
+            Assert.assertEquals(pagesInRange, list.pages.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void jumpForwardLoadsPagesConcurrently() {
+        final List<Runnable> executed = new ArrayList<>();
+        LazyList<Integer> list = createList();
+        list.setParallelLoadingExecutor(task -> {
+            executed.add(task);
+            task.run();
+        });
+        list.get(0);
+        Assert.assertEquals(Integer.valueOf(35), list.get(35));
+        Assert.assertEquals(3, executed.size());
+        Assert.assertEquals(Arrays.asList(0, 10, 20, 30), requestedRows);
+        // eviction still keeps maxPages pages
+        Assert.assertEquals(3, list.pages.size());
+        Assert.assertEquals(Integer.valueOf(15), list.get(15));
+        Assert.assertEquals(4, requestedRows.size());
+    }
+
+    @Test
+    public void streamDoesNotAffectCachedPages() {
+        LazyList<Integer> list = createList();
+        list.get(500);
+        List<List<Integer>> cachedPages = new ArrayList<>(list.pages);
+
+        Assert.assertEquals(SIZE * (SIZE - 1) / 2, list.stream().mapToInt(
+                Integer::intValue).sum());
+        Assert.assertEquals(cachedPages, list.pages);
+        Assert.assertEquals(SIZE / PAGE_SIZE + 1, requestedRows.size());
+    }
+
+    @Test
+    public void parallelStreamSplitsOnPageBoundaries() {
+        final List<Integer> requests = Collections.synchronizedList(
+                new ArrayList<>());
+        LazyList<Integer> list = new LazyList<>(firstRow -> {
+            requests.add(firstRow);
+            return range(firstRow, firstRow + PAGE_SIZE);
+        }, () -> SIZE, PAGE_SIZE);
+
+        List<Integer> all = list.parallelStream().collect(Collectors.toList());
+        Assert.assertEquals(range(0, SIZE), all);
+        Collections.sort(requests);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < SIZE; i += PAGE_SIZE) {
+            expected.add(i);
+        }
+        Assert.assertEquals(expected, requests);
+    }
+
+    @Test
+    public void streamUsesKeysetPagination() {
+        KeysetProvider provider = new KeysetProvider();
+        LazyList<Integer> list = new LazyList<>(provider, () -> 25, PAGE_SIZE);
+        Assert.assertEquals(25, list.stream().count());
+        Assert.assertEquals(Arrays.asList("offset 0", "after 9", "after 19"),
+                provider.calls);
+    }
+
+    @Test
+    public void metricsAreCollected() {
+        LazyListStatistics statistics = new LazyListStatistics();
+        LazyList<Integer> list = createList();
+        list.setMetrics(statistics);
+
+        Assert.assertEquals(SIZE, list.size());
+        list.get(0);
+        list.get(1);
+        list.get(10);
+        list.get(20);
+        list.get(30);
+        list.get(500);
+
+        Assert.assertEquals(1, statistics.getCountCalls());
+        Assert.assertEquals(1, statistics.getCacheHits());
+        Assert.assertEquals(5, statistics.getCacheMisses());
+        Assert.assertEquals(5, statistics.getFetchCalls());
+        Assert.assertEquals(5, statistics.getPagesFetched());
+        Assert.assertEquals(5 * PAGE_SIZE, statistics.getRowsFetched());
+        Assert.assertEquals(1, statistics.getPagesEvicted());
+        Assert.assertEquals(1, statistics.getCacheResets());
+
+        Assert.assertEquals(-1, list.indexOf(-1));
+        Assert.assertEquals(1, statistics.getFallbackScans());
+    }
+
+    @Test
+    public void statisticsCanBeRegisteredAsMBean() throws Exception {
+        LazyListStatistics statistics = new LazyListStatistics().register(
+                "test");
+        try {
+            ObjectName name = new ObjectName(
+                    "org.vaadin.viritin:type=LazyList,name=\"test\"");
+            Assert.assertEquals(0L, ManagementFactory.getPlatformMBeanServer().
+                    getAttribute(name, "CacheHits"));
+        } finally {
+            statistics.unregister();
+        }
+    }
+
+    @Test
+    public void histogramReportsPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500));
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(500, histogram.getMaxMillis(), 0.001);
+        // buckets are powers of two microseconds
+        Assert.assertEquals(8.192, histogram.getPercentileMillis(50), 0.001);
+        Assert.assertEquals(500, histogram.getPercentileMillis(100), 0.001);
+    }
+
+    @Test
+    public void asyncProviderReturnsPlaceholdersUntilPageIsLoaded() {
+        final Map<Integer, CompletableFuture<List<Integer>>> loads = new HashMap<>();
+        LazyList<Integer> list = new AsyncLazyList<>(firstRow -> {
+                    CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+                    loads.put(firstRow, future);
+                    return future;
+                }, () -> SIZE, PAGE_SIZE);
+        list.setPlaceholderProvider(index -> -1);
+        list.setFetchDeadline(0, TimeUnit.MILLISECONDS);
+        final List<Integer> loaded = new ArrayList<>();
+        list.addPageLoadListener((firstRow, rowCount) -> loaded.add(firstRow));
+
+        Assert.assertEquals(-1, (int) list.get(15));
+        Assert.assertEquals(Collections.singleton(10), loads.keySet());
+
+        loads.get(10).complete(range(10, 20));
+        Assert.assertEquals(Arrays.asList(10), loaded);
+        Assert.assertEquals(15, (int) list.get(15));
+        Assert.assertEquals(1, loads.size());
+    }
+
+    @Test
+    public void asyncProviderPageLoadedWithinDeadlineIsReturnedDirectly() {
+        LazyList<Integer> list = new AsyncLazyList<>(firstRow -> CompletableFuture.
+                completedFuture(range(firstRow, firstRow + PAGE_SIZE)),
+                () -> SIZE, PAGE_SIZE);
+        list.setPlaceholderProvider(index -> -1);
+        Assert.assertEquals(Arrays.asList(5, 6, 7), list.subList(5, 8));
+        Assert.assertEquals(999, (int) list.get(999));
+    }
+
+    @Test
+    public void placeholdersAreNotMatchedByIndexOf() {
+        LazyList<Integer> list = new AsyncLazyList<>(firstRow -> CompletableFuture.
+                supplyAsync(() -> range(firstRow, firstRow + PAGE_SIZE)),
+                () -> 30, PAGE_SIZE);
+        list.setPlaceholderProvider(index -> -1);
+        list.setFetchDeadline(0, TimeUnit.MILLISECONDS);
+        list.get(0);
+        Assert.assertEquals(-1, list.indexOf(-1));
+        Assert.assertEquals(25, list.indexOf(25));
+    }
+
+    private static class EstimatingCount implements LazyList.EstimatingCountProvider {
+
+        private final int estimate;
+        private final int count;
+
+        EstimatingCount(int estimate, int count) {
+            this.estimate = estimate;
+            this.count = count;
+        }
+
+        @Override
+        public int estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    @Test
+    public void estimatedSizeIsUsedUntilExactCountIsReady() {
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                firstRow + PAGE_SIZE), new EstimatingCount(900, SIZE), PAGE_SIZE);
+        final List<Runnable> counts = new ArrayList<>();
+        list.setCountExecutor(counts::add);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+
+        Assert.assertEquals(900, list.size());
+        Assert.assertTrue(list.isSizeEstimated());
+        Assert.assertEquals(1, counts.size());
+        Assert.assertEquals(5, (int) list.get(5));
+
+        counts.get(0).run();
+        Assert.assertEquals(Arrays.asList(SIZE), sizeChanges);
+        Assert.assertEquals(SIZE, list.size());
+        Assert.assertFalse(list.isSizeEstimated());
+    }
+
+    @Test
+    public void tooLargeEstimateIsCorrectedByLastPage() {
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                firstRow + PAGE_SIZE), new EstimatingCount(1200, SIZE), PAGE_SIZE);
+        list.setCountExecutor(command -> {
+        });
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+
+        Assert.assertEquals(1200, list.size());
+        try {
+            list.get(1005);
+            Assert.fail("The row is past the end of the list");
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertEquals(Arrays.asList(SIZE), sizeChanges);
+        }
+        Assert.assertEquals(SIZE, list.size());
+    }
+
+    @Test
+    public void jumpPastEndOfOverestimatedListWaitsForCount() {
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                Math.min(firstRow + PAGE_SIZE, 100)),
+                new EstimatingCount(SIZE, 100), PAGE_SIZE);
+        list.setCountExecutor(command -> {
+        });
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+
+        Assert.assertEquals(SIZE, list.size());
+        // the page is empty, so it doesn't tell the real size
+        try {
+            list.get(500);
+            Assert.fail("The row is past the end of the list");
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertEquals(Arrays.asList(100), sizeChanges);
+        }
+        Assert.assertEquals(100, list.size());
+        Assert.assertFalse(list.isSizeEstimated());
+        Assert.assertEquals(99, (int) list.get(99));
+    }
+
+    @Test
+    public void firstPageIsLoadedWhileCounting() {
+        final CountDownLatch firstPageLoaded = new CountDownLatch(1);
+        LazyList<Integer> list = new LazyList<>(firstRow -> {
+            firstPageLoaded.countDown();
+            return range(firstRow, firstRow + PAGE_SIZE);
+        }, () -> {
+            try {
+                // completes only if the page is loaded concurrently
+                return firstPageLoaded.await(5, TimeUnit.SECONDS) ? SIZE : -1;
+            } catch (InterruptedException ex) {
+                return -1;
+            }
+        }, PAGE_SIZE);
+        ExecutorService executor = PageLoadingExecutors.newThreadPoolExecutor();
+        try {
+            list.setCountExecutor(executor);
+            Assert.assertEquals(SIZE, list.size());
+            Assert.assertEquals(0, (int) list.get(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void listWithoutCountGrowsWhileScrolling() {
+        final List<String> calls = new ArrayList<>();
+        LazyList<Integer> list = new LazyList<>((firstRow, maxResults) -> {
+            calls.add(firstRow + "+" + maxResults);
+            return range(firstRow, Math.min(firstRow + maxResults, 95));
+        }, PAGE_SIZE);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+
+        Assert.assertEquals(PAGE_SIZE + 1, list.size());
+        Assert.assertEquals(Arrays.asList("0+11"), calls);
+        Assert.assertEquals(10, (int) list.get(10));
+        Assert.assertEquals(2 * PAGE_SIZE + 1, list.size());
+
+        int count = 0;
+        for (Integer i : list) {
+            count++;
+        }
+        Assert.assertEquals(95, count);
+        Assert.assertEquals(95, list.size());
+        Assert.assertEquals(Arrays.asList(11, 21, 31, 41, 51, 61, 71, 81, 91,
+                95), sizeChanges);
+
+        list.reset();
+        Assert.assertEquals(95, list.stream().count());
+        // streaming doesn't grow the size of the list
+        Assert.assertEquals(PAGE_SIZE + 1, list.size());
+        Assert.assertEquals(Arrays.asList(4, 5, 6), list.subList(4, 7));
+    }
+
+    @Test
+    public void streamDoesNotUpdateMetricsOrSize() {
+        LazyList<Integer> list = new LazyList<>((firstRow, maxResults) -> range(
+                firstRow, Math.min(firstRow + maxResults, 95)), PAGE_SIZE);
+        LazyListStatistics statistics = new LazyListStatistics();
+        list.setMetrics(statistics);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+
+        Assert.assertEquals(95, list.stream().count());
+        Assert.assertEquals(0, statistics.getFetchCalls());
+        Assert.assertEquals(Collections.emptyList(), sizeChanges);
+    }
+
+    @Test
+    public void expiredPageIsRefetchedAlone() throws InterruptedException {
+        LazyList<Integer> list = createList();
+        list.setMaxPages(5);
+        list.setPageTimeToLive(50, TimeUnit.MILLISECONDS);
+        list.get(0);
+        list.get(10);
+        Thread.sleep(60);
+        list.get(15);
+        list.get(20);
+        list.get(25);
+        Assert.assertEquals(Arrays.asList(0, 10, 10, 20), requestedRows);
+    }
+
+    @Test
+    public void expiredPagesOfSubListAreRefetched() throws InterruptedException {
+        final List<String> calls = new ArrayList<>();
+        LazyList<Integer> list = new LazyList<>(
+                (firstRow, maxResults) -> {
+                    calls.add(firstRow + "+" + maxResults);
+                    return range(firstRow, firstRow + maxResults);
+                }, () -> SIZE, PAGE_SIZE);
+        list.setPageTimeToLive(20, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(range(0, 20), list.subList(0, 20));
+        Thread.sleep(30);
+        Assert.assertEquals(range(0, 20), list.subList(0, 20));
+        Assert.assertEquals(Arrays.asList("0+20", "0+20"), calls);
+    }
+
+    @Test
+    public void unchangedPagesAreRevalidatedWithVersion() throws InterruptedException {
+        LazyList<Integer> list = createList();
+        final Map<Integer, Integer> versions = new HashMap<>();
+        final List<Integer> versionRequests = new ArrayList<>();
+        list.setPageVersionProvider((firstRow, maxResults) -> {
+            versionRequests.add(firstRow);
+            return versions.getOrDefault(firstRow, 1);
+        });
+        list.setPageTimeToLive(20, TimeUnit.MILLISECONDS);
+        // the version is stored when the page is loaded
+        list.get(0);
+        Thread.sleep(30);
+        list.get(0);
+        Thread.sleep(30);
+        list.get(0);
+        Assert.assertEquals(Arrays.asList(0), requestedRows);
+        Thread.sleep(30);
+        versions.put(0, 2);
+        list.get(0);
+        Assert.assertEquals(Arrays.asList(0, 0), requestedRows);
+        Assert.assertEquals(Arrays.asList(0, 0, 0, 0), versionRequests);
+    }
+
+    @Test
+    public void expiredCountIsRefreshed() throws InterruptedException {
+        final int[] count = {SIZE};
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                firstRow + PAGE_SIZE), () -> count[0], PAGE_SIZE);
+        list.setCountTimeToLive(20, TimeUnit.MILLISECONDS);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+        Assert.assertEquals(SIZE, list.size());
+        count[0] = 500;
+        Assert.assertEquals(SIZE, list.size());
+        Thread.sleep(30);
+        Assert.assertEquals(500, list.size());
+        Assert.assertEquals(Arrays.asList(500), sizeChanges);
+    }
+
+    @Test
+    public void expiredCountIsRefreshedInBackground() throws
+            InterruptedException {
+        final int[] count = {SIZE};
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                Math.min(firstRow + PAGE_SIZE, count[0])), () -> count[0],
+                PAGE_SIZE);
+        list.setCountTimeToLive(20, TimeUnit.MILLISECONDS);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+        Assert.assertEquals(SIZE, list.size());
+        final List<Runnable> counts = new ArrayList<>();
+        list.setCountExecutor(counts::add);
+        count[0] = 500;
+        Thread.sleep(30);
+
+        // the previous count is not an estimate to be corrected by pages
+        Assert.assertEquals(SIZE, list.size());
+        Assert.assertFalse(list.isSizeEstimated());
+        try {
+            list.get(995);
+            Assert.fail("The row has been removed");
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertEquals(SIZE, list.size());
+        }
+        Assert.assertEquals(1, counts.size());
+        counts.get(0).run();
+        Assert.assertEquals(500, list.size());
+        Assert.assertEquals(Arrays.asList(500), sizeChanges);
+    }
+
+    @Test
+    public void invalidatedEntityIsRefetched() {
+        LazyList<Integer> list = createList();
+        list.get(5);
+        list.get(15);
+        Assert.assertTrue(list.invalidateEntity(15));
+        Assert.assertFalse(list.invalidateEntity(SIZE + 1));
+        list.get(5);
+        list.get(15);
+        Assert.assertEquals(Arrays.asList(0, 10, 10), requestedRows);
+    }
+
+    @Test
+    public void insertedAndRemovedRowsShiftCachedPages() {
+        final List<Integer> backend = new ArrayList<>(range(0, 50));
+        LazyList<Integer> list = new LazyList<>(firstRow -> {
+            requestedRows.add(firstRow);
+            return new ArrayList<>(backend.subList(firstRow, Math.min(
+                    firstRow + PAGE_SIZE, backend.size())));
+        }, backend::size, PAGE_SIZE);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+        Assert.assertEquals(50, list.size());
+        list.get(0);
+        list.get(10);
+        backend.add(5, -1);
+        list.entityInserted(5, -1);
+        Assert.assertEquals(51, list.size());
+        Assert.assertEquals(Integer.valueOf(-1), list.get(5));
+        Assert.assertEquals(Integer.valueOf(9), list.get(10));
+        Assert.assertEquals(Arrays.asList(0, 10), requestedRows);
+        backend.remove(0);
+        list.entityRemoved(0);
+        Assert.assertEquals(50, list.size());
+        Assert.assertEquals(Integer.valueOf(1), list.get(0));
+        Assert.assertEquals(backend, new ArrayList<>(list));
+        Assert.assertEquals(Arrays.asList(51, 50), sizeChanges);
+    }
+
+    @Test
+    public void shiftedWindowOfListWithoutCountIsNotTakenAsEnd() {
+        final List<Integer> backend = new ArrayList<>(range(0, 33));
+        LazyList<Integer> list = new LazyList<>((firstRow, maxResults) ->
+                new ArrayList<>(backend.subList(Math.min(firstRow, backend.
+                        size()), Math.min(firstRow + maxResults, backend.
+                        size()))), 12);
+        list.size();
+        list.get(13);
+        backend.remove(26);
+        list.entityRemoved(26);
+        list.size();
+        list.get(10);
+        backend.add(8, -1);
+        list.entityInserted(8, -1);
+        list.size();
+        list.get(17);
+        backend.add(30, -2);
+        list.entityInserted(30, -2);
+        list.size();
+        Assert.assertEquals(backend.get(25), list.get(25));
+        Assert.assertEquals(backend, new ArrayList<>(list));
+    }
+
+    @Test
+    public void invalidatedRowsMoveWithShiftedRows() {
+        LazyList<Integer> list = createList();
+        list.get(0);
+        list.get(10);
+        list.get(20);
+        list.invalidateRange(19, 20);
+        // the invalidated row moves to the third page
+        list.entityInserted(5, -1);
+        requestedRows.clear();
+        list.get(20);
+        Assert.assertEquals(Arrays.asList(20), requestedRows);
+    }
+
+    @Test
+    public void changesAreAppliedWithoutQueries() {
+        final List<String> backend = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            backend.add("row" + i);
+        }
+        final List<Integer> counts = new ArrayList<>();
+        LazyList<String> list = new LazyList<>(firstRow -> {
+            requestedRows.add(firstRow);
+            return new ArrayList<>(backend.subList(firstRow, Math.min(
+                    firstRow + PAGE_SIZE, backend.size())));
+        }, () -> {
+            counts.add(backend.size());
+            return backend.size();
+        }, PAGE_SIZE);
+        Assert.assertEquals(30, list.size());
+        list.get(0);
+        list.get(10);
+
+        Assert.assertTrue(list.applyChange(EntityChange.updated("row3")));
+        backend.add(12, "new");
+        Assert.assertTrue(list.applyChange(EntityChange.inserted("new", 12)));
+        backend.remove("row1");
+        Assert.assertTrue(list.applyChange(EntityChange.removed("row1")));
+        Assert.assertEquals(30, list.size());
+        Assert.assertEquals("new", list.get(11));
+        Assert.assertEquals(backend.subList(0, 20), list.subList(0, 20));
+        // only the second page, which lost its last row, is fetched again
+        Assert.assertEquals(Arrays.asList(0, 10, 10), requestedRows);
+        Assert.assertEquals(1, counts.size());
+
+        // unknown position of an uncached entity resets the list
+        Assert.assertFalse(list.applyChange(EntityChange.removed("row25")));
+        backend.remove("row25");
+        Assert.assertEquals(29, list.size());
+    }
+
+    @Test
+    public void pageSizeFollowsViewportAndLatency() {
+        AdaptivePageSize fast = new AdaptivePageSize(10, 200);
+        AdaptivePageSize slow = new AdaptivePageSize(10, 200);
+        for (int i = 0; i < 10; i++) {
+            fast.rangeRequested(20);
+            fast.fetched(TimeUnit.MILLISECONDS.toNanos(5), 20);
+            slow.rangeRequested(20);
+            slow.fetched(TimeUnit.MILLISECONDS.toNanos(500), 20);
+        }
+        Assert.assertEquals(22, fast.getPageSize(45));
+        Assert.assertEquals(200, slow.getPageSize(45));
+    }
+
+    @Test
+    public void adaptivePageSizeResplitsCachedRows() {
+        final List<Integer> maxResults = new ArrayList<>();
+        LazyList<Integer> list = new LazyList<>((firstRow, max) -> {
+            requestedRows.add(firstRow);
+            maxResults.add(max);
+            return range(firstRow, Math.min(firstRow + max, SIZE));
+        }, () -> SIZE, 45);
+        list.setAdaptivePageSize(new AdaptivePageSize(10, 100));
+        Assert.assertEquals(range(0, 20), list.subList(0, 20));
+        Assert.assertEquals(20, list.getPageSize());
+        Assert.assertEquals(Arrays.asList(20), maxResults);
+
+        // the backend turns out to be slow
+        for (int i = 0; i < 30; i++) {
+            list.getAdaptivePageSize().fetched(TimeUnit.MILLISECONDS.toNanos(
+                    100), 20);
+        }
+        Assert.assertEquals(range(20, 40), list.subList(20, 40));
+        Assert.assertEquals(60, list.getPageSize());
+        Assert.assertEquals(Arrays.asList(20, 60), maxResults);
+        Assert.assertEquals(Arrays.asList(0, 0), requestedRows);
+        Assert.assertEquals(Integer.valueOf(59), list.get(59));
+        Assert.assertEquals(2, requestedRows.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void adaptivePageSizeRequiresRangeProvider() {
+        createList().setAdaptivePageSize(new AdaptivePageSize(10, 100));
+    }
+
+    @Test(timeout = 5000)
+    public void concurrentLoadsOfSharedPageAreCoalesced() throws Exception {
+        final SharedPageCache cache = new SharedPageCache(100, 1, TimeUnit.MINUTES);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        class SlowProvider implements LazyList.PagingProvider<Integer>,
+                LazyList.QueryKeyProvider {
+
+            @Override
+            public List<Integer> findEntities(int firstRow) {
+                calls.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return range(firstRow, firstRow + PAGE_SIZE);
+            }
+
+            @Override
+            public Object getQueryKey() {
+                return "slow";
+            }
+        }
+        ExecutorService executor = PageLoadingExecutors.newThreadPoolExecutor();
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                LazyList<Integer> list = new LazyList<>(new SlowProvider(),
+                        () -> SIZE, PAGE_SIZE);
+                list.setSharedPageCache(cache);
+                results.add(executor.submit(() -> list.get(5)));
+                if (i == 0) {
+                    loading.await();
+                }
+            }
+            while (cache.getCoalescedLoadCount() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                Assert.assertEquals(Integer.valueOf(5), result.get());
+            }
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void transientCacheIsReloadedAfterDeserialization() throws Exception {
+        LazyList<Integer> list = new LazyList<>(firstRow -> range(firstRow,
+                firstRow + PAGE_SIZE), () -> SIZE, PAGE_SIZE);
+        list.setPageStore(new LruPageStore<>(10));
+        list.get(5);
+        list.get(25);
+        Assert.assertEquals(SIZE, list.size());
+        final byte[] withCache = serialize(list);
+        list.setCacheSerialized(false);
+        final byte[] withoutCache = serialize(list);
+        Assert.assertTrue(withoutCache.length < withCache.length);
+
+        LazyList<Integer> restored = deserialize(withoutCache);
+        Assert.assertTrue(restored.pages.isEmpty());
+        Assert.assertEquals(0, ((LruPageStore<Integer>) restored.getPageStore()).
+                getPageCount());
+        Assert.assertEquals(SIZE, restored.size());
+        Assert.assertEquals(Integer.valueOf(25), restored.get(25));
+        Assert.assertEquals(25, restored.indexOf(25));
+
+        restored = deserialize(withCache);
+        Assert.assertEquals(3, restored.pages.size());
+        Assert.assertEquals(Integer.valueOf(25), restored.get(25));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deserialize(byte[] bytes) throws IOException,
+            ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        }
+    }
+
+    @Test
+    public void reclaimedSoftPagesAreReloaded() throws Exception {
+        LazyList<Integer> list = createList();
+        list.setSoftPages(true);
+        LruPageStore<Integer> store = new LruPageStore<>(10);
+        list.setPageStore(store);
+        Assert.assertEquals(Integer.valueOf(5), list.get(5));
+        Assert.assertEquals(Integer.valueOf(15), list.get(15));
+
+        // simulate the garbage collector clearing the soft reference
+        List<Integer> page = list.pages.get(0);
+        reclaim(page);
+
+        Assert.assertEquals(Integer.valueOf(15), list.get(15));
+        Assert.assertEquals(Arrays.asList(0, 10), requestedRows);
+        Assert.assertEquals(Integer.valueOf(5), list.get(5));
+        Assert.assertEquals(Integer.valueOf(6), list.get(6));
+        Assert.assertEquals(Arrays.asList(0, 10, 0), requestedRows);
+        Assert.assertSame(page, store.get(0));
+    }
+
+    private static void reclaim(List<?> page) throws Exception {
+        Field rows = page.getClass().getDeclaredField("rows");
+        rows.setAccessible(true);
+        ((Reference<?>) rows.get(page)).clear();
+    }
+
+    @Test
+    public void shorterReclaimedPageCorrectsSize() throws Exception {
+        final List<Integer> backend = new ArrayList<>(range(0, 25));
+        LazyList<Integer> list = new LazyList<>(firstRow -> {
+            requestedRows.add(firstRow);
+            return new ArrayList<>(backend.subList(firstRow, Math.min(
+                    firstRow + PAGE_SIZE, backend.size())));
+        }, backend::size, PAGE_SIZE);
+        list.setSoftPages(true);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        list.addSizeChangeListener(sizeChanges::add);
+        Assert.assertEquals(25, list.size());
+        Assert.assertEquals(Integer.valueOf(24), list.get(24));
+        reclaim(list.pages.get(0));
+        backend.remove(24);
+        backend.remove(23);
+        try {
+            list.get(24);
+            Assert.fail("The row has been removed");
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertEquals(Arrays.asList(20, 20), requestedRows);
+        }
+        Assert.assertEquals(23, list.size());
+        Assert.assertEquals(Arrays.asList(23), sizeChanges);
+        Assert.assertEquals(Integer.valueOf(22), list.get(22));
+    }
+
+    @Test
+    public void reclaimedPagesAreNotLoadedForSearchOrSerialization() throws
+            Exception {
+        final RecordingProvider provider = new RecordingProvider();
+        LazyList<Integer> list = new LazyList<>(provider, () -> SIZE, PAGE_SIZE);
+        list.setSoftPages(true);
+        list.setCacheSerialized(true);
+        list.setIndexProvider(entity -> entity);
+        list.get(5);
+        list.get(15);
+        reclaim(list.pages.get(0));
+        provider.requestedRows.clear();
+
+        Assert.assertEquals(5, list.indexOf(5));
+        Assert.assertEquals(15, list.indexOf(15));
+        Assert.assertTrue(list.contains(6));
+        LazyList<Integer> copy = deserialize(serialize(list));
+        Assert.assertTrue(provider.requestedRows.isEmpty());
+
+        // the reclaimed page is loaded only when its rows are accessed
+        Assert.assertEquals(Integer.valueOf(16), copy.get(16));
+        Assert.assertEquals(Integer.valueOf(6), copy.get(6));
+    }
+
+}
@@ -1,12 +1,20 @@
 package org.vaadin.viritin;
 
+import org.vaadin.viritin.lazy.FilterDescriptor;
+import org.vaadin.viritin.v7.FilterableSortableLazyList;
 import org.vaadin.viritin.v7.SortableLazyList;
 import org.junit.Assert;
 import org.junit.Test;
+import org.vaadin.viritin.lazy.AdaptivePageSize;
+import org.vaadin.viritin.lazy.SharedPageCache;
 import org.vaadin.viritin.testdomain.Person;
 import org.vaadin.viritin.testdomain.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -46,4 +54,273 @@ public class SortableLazyListTest {
             });
     }
 
+    @Test
+    public void shouldIncludeSortOrderInSharedCacheKey() {
+        final AtomicInteger requests = new AtomicInteger();
+        SharedPageCache cache = new SharedPageCache(100, 1, TimeUnit.MINUTES);
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                new SharedSortableProvider(requests), () -> (int) Service.count());
+        sortableLazyList.setSharedPageCache(cache);
+        sortableLazyList.get(0);
+        sortableLazyList.sort(false, "age");
+        sortableLazyList.get(0);
+        Assert.assertThat(requests.get(), is(2));
+        sortableLazyList.sort(true, null);
+        sortableLazyList.get(0);
+        Assert.assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void shouldPassSortPropertiesToKeysetProvider() {
+        final List<String> calls = new ArrayList<>();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                new SortableLazyList.SortableKeysetPagingProvider<Person>() {
+            @Override
+            public List<Person> findEntitiesAfter(int firstRow, Person previous,
+                    boolean[] sortAscending, String[] properties) {
+                calls.add("after " + previous.getId() + " " + properties[0]);
+                return Service.findAll(firstRow, LazyList.DEFAULT_PAGE_SIZE);
+            }
+
+            @Override
+            public List<Person> findEntitiesBefore(int firstRow, Person next,
+                    boolean[] sortAscending, String[] properties) {
+                calls.add("before " + next.getId() + " " + properties[0]);
+                return Service.findAll(firstRow, LazyList.DEFAULT_PAGE_SIZE);
+            }
+
+            @Override
+            public List<Person> findEntities(int firstRow, boolean[] sortAscending,
+                    String[] properties) {
+                calls.add("offset " + firstRow);
+                return Service.findAll(firstRow, LazyList.DEFAULT_PAGE_SIZE);
+            }
+        }, () -> (int) Service.count(), LazyList.DEFAULT_PAGE_SIZE);
+        sortableLazyList.setSortProperty(new String[]{"id"});
+        sortableLazyList.get(0);
+        sortableLazyList.get(LazyList.DEFAULT_PAGE_SIZE);
+        Assert.assertThat(calls.toString(), is("[offset 0, after "
+                + LazyList.DEFAULT_PAGE_SIZE + " id]"));
+    }
+
+    @Test
+    public void shouldPassSortOrderToIndexProvider() {
+        final AtomicReference<String> sortPropertyHolder = new AtomicReference<>("NOT_SET");
+        SortableLazyList<Person> sortableLazyList = createList(sortPropertyHolder);
+        sortableLazyList.setIndexProvider((entity, sortAscending, properties) -> {
+            sortPropertyHolder.set(properties[0] + " " + sortAscending[0]);
+            return 5;
+        });
+        sortableLazyList.sort(false, "age");
+        Assert.assertThat(sortableLazyList.indexOf(new Person()), is(5));
+        Assert.assertThat(sortPropertyHolder.get(), is("age false"));
+    }
+
+    @Test
+    public void shouldUseRangeProviderForSubList() {
+        final List<String> calls = new ArrayList<>();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                (firstRow, maxResults, sortAscending, properties) -> {
+                    calls.add(firstRow + "+" + maxResults + " " + properties[0]);
+                    return Service.findAll(firstRow, maxResults);
+                }, () -> (int) Service.count(), 10);
+        sortableLazyList.setSortProperty(new String[]{"age"});
+        Assert.assertThat(sortableLazyList.subList(0, 50).size(), is(50));
+        Assert.assertThat(calls.toString(), is("[0+50 age]"));
+    }
+
+    @Test
+    public void shouldAdaptPageSizeWithRangeProvider() {
+        final List<String> calls = new ArrayList<>();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                (firstRow, maxResults, sortAscending, properties) -> {
+                    calls.add(firstRow + "+" + maxResults);
+                    return Service.findAll(firstRow, maxResults);
+                }, () -> (int) Service.count(), 10);
+        sortableLazyList.setAdaptivePageSize(new AdaptivePageSize(5, 50));
+        Assert.assertThat(sortableLazyList.subList(0, 20).size(), is(20));
+        Assert.assertThat(sortableLazyList.getPageSize(), is(20));
+        Assert.assertThat(calls.toString(), is("[0+20]"));
+        sortableLazyList.get(25);
+        Assert.assertThat(calls.toString(), is("[0+20, 20+20]"));
+    }
+
+    @Test
+    public void shouldKeepSizeAndRecentSortOrdersWhenSorting() {
+        final List<String> calls = new ArrayList<>();
+        final AtomicInteger counts = new AtomicInteger();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                (firstRow, sortAscending, property) -> {
+                    calls.add(firstRow + " " + property + " " + sortAscending);
+                    return Service.findAll(firstRow, LazyList.DEFAULT_PAGE_SIZE);
+                }, () -> {
+                    counts.incrementAndGet();
+                    return (int) Service.count();
+                });
+        sortableLazyList.setCachedSortOrders(1);
+        sortableLazyList.size();
+        sortableLazyList.get(0);
+        sortableLazyList.sort(true, "firstName");
+        sortableLazyList.get(0);
+        sortableLazyList.sort(true, null);
+        sortableLazyList.get(0);
+        sortableLazyList.sort(true, "firstName");
+        sortableLazyList.get(0);
+        Assert.assertThat(calls.toString(), is("[0 null true, 0 firstName true]"));
+
+        // only one other sort order is kept
+        sortableLazyList.sort(false, "age");
+        sortableLazyList.get(0);
+        sortableLazyList.sort(true, null);
+        sortableLazyList.get(0);
+        Assert.assertThat(calls.size(), is(4));
+        Assert.assertThat(sortableLazyList.size(), is((int) Service.count()));
+        Assert.assertThat(counts.get(), is(1));
+
+        // sorting again with the same order refreshes the list
+        sortableLazyList.sort(true, null);
+        sortableLazyList.get(0);
+        Assert.assertThat(calls.size(), is(5));
+    }
+
+    @Test
+    public void shouldSortSmallListsInMemory() {
+        final List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            persons.add(new Person(i, "First" + (i % 3), "Last" + i, 50 - i));
+        }
+        final List<String> calls = new ArrayList<>();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                (int firstRow, boolean sortAscending, String property) -> {
+                    calls.add(firstRow + " " + property);
+                    return persons.subList(Math.min(firstRow, persons.size()),
+                            Math.min(firstRow + 10, persons.size()));
+                }, persons::size, 10);
+        sortableLazyList.setInMemorySortThreshold(25);
+        sortableLazyList.sort(true, "age");
+        Assert.assertThat(sortableLazyList.isSortedInMemory(), is(true));
+        Assert.assertThat(sortableLazyList.get(0).getAge(), is(26));
+        Assert.assertThat(sortableLazyList.get(24).getAge(), is(50));
+
+        // ties keep the natural order
+        sortableLazyList.sort(new boolean[]{false, true},
+                new String[]{"firstName", "id"});
+        Assert.assertThat(sortableLazyList.get(0).getId(), is(2));
+        Assert.assertThat(sortableLazyList.get(1).getId(), is(5));
+        Assert.assertThat(sortableLazyList.get(24).getId(), is(24));
+        Assert.assertThat(calls.toString(), is("[0 null, 10 null, 20 null]"));
+
+        // larger lists are sorted in the backend
+        persons.add(new Person(25, "First", "Last", 20));
+        sortableLazyList.reset();
+        sortableLazyList.sort(true, "age");
+        Assert.assertThat(sortableLazyList.isSortedInMemory(), is(false));
+        sortableLazyList.get(0);
+        Assert.assertThat(calls.get(calls.size() - 1), is("0 age"));
+    }
+
+    @Test
+    public void shouldCountAgainBeforeSortingInMemory() {
+        final List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            persons.add(new Person(i, "First", "Last" + i, 50 - i));
+        }
+        final List<String> calls = new ArrayList<>();
+        SortableLazyList<Person> sortableLazyList = new SortableLazyList<>(
+                (int firstRow, boolean sortAscending, String property) -> {
+                    calls.add(firstRow + " " + property);
+                    return persons.subList(Math.min(firstRow, persons.size()),
+                            Math.min(firstRow + 10, persons.size()));
+                }, persons::size, 10);
+        final List<Integer> sizeChanges = new ArrayList<>();
+        sortableLazyList.addSizeChangeListener(sizeChanges::add);
+        sortableLazyList.setInMemorySortThreshold(25);
+        sortableLazyList.sort(true, "age");
+        Assert.assertThat(sortableLazyList.isSortedInMemory(), is(true));
+        Assert.assertThat(sortableLazyList.size(), is(20));
+
+        // rows added in the backend are loaded before sorting in memory
+        persons.add(new Person(20, "First", "Last", 10));
+        sortableLazyList.sort(false, "age");
+        Assert.assertThat(sortableLazyList.isSortedInMemory(), is(true));
+        Assert.assertThat(sortableLazyList.size(), is(21));
+        Assert.assertThat(sortableLazyList.get(20).getAge(), is(10));
+
+        // the backend has grown over the threshold between two sorts
+        for (int i = 21; i < 30; i++) {
+            persons.add(new Person(i, "First", "Last" + i, 50 - i));
+        }
+        sortableLazyList.sort(true, "id");
+        Assert.assertThat(sortableLazyList.isSortedInMemory(), is(false));
+        Assert.assertThat(sortableLazyList.size(), is(30));
+        sortableLazyList.get(0);
+        Assert.assertThat(calls.get(calls.size() - 1), is("0 id"));
+        Assert.assertThat(sizeChanges.toString(), is("[21, 30]"));
+    }
+
+    @Test
+    public void shouldPassFilterToProvidersAndKeepRecentFilters() {
+        final List<String> calls = new ArrayList<>();
+        final List<Person> persons = Service.findAll(0, 100);
+        FilterableSortableLazyList<Person> list = new FilterableSortableLazyList<>(
+                (firstRow, maxResults, sortAscending, properties, filter) -> {
+                    calls.add(firstRow + " " + filter);
+                    return matching(persons, filter).subList(firstRow,
+                            Math.min(firstRow + maxResults,
+                                    matching(persons, filter).size()));
+                }, filter -> {
+                    calls.add("count " + filter);
+                    return matching(persons, filter).size();
+                }, 10);
+        Assert.assertThat(list.size(), is(100));
+        list.get(0);
+
+        final FilterDescriptor young = FilterDescriptor.compare(
+                FilterDescriptor.Operator.LESS, "age", 30);
+        list.setFilter(young);
+        Assert.assertThat(list.size(), is(matching(persons, young).size()));
+        Assert.assertThat(list.get(0).getAge() < 30, is(true));
+
+        // the size and pages of the previous filter are kept
+        list.setFilter(null);
+        Assert.assertThat(list.size(), is(100));
+        list.get(0);
+        list.setFilter(FilterDescriptor.and(Arrays.asList(young)));
+        list.get(0);
+        Assert.assertThat(calls.toString(), is("[count null, 0 null, count "
+                + young + ", 0 " + young + "]"));
+    }
+
+    private static List<Person> matching(List<Person> persons,
+            FilterDescriptor filter) {
+        final List<Person> result = new ArrayList<>();
+        for (Person p : persons) {
+            if (filter == null || p.getAge() < (Integer) filter.getValue()) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    private static class SharedSortableProvider implements
+            SortableLazyList.SortablePagingProvider<Person>, LazyList.QueryKeyProvider {
+
+        private final AtomicInteger requests;
+
+        SharedSortableProvider(AtomicInteger requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public List<Person> findEntities(int firstRow, boolean sortAscending, String property) {
+            requests.incrementAndGet();
+            return Service.findAll(firstRow, LazyList.DEFAULT_PAGE_SIZE);
+        }
+
+        @Override
+        public Object getQueryKey() {
+            return "persons";
+        }
+    }
+
 }